@@ -0,0 +1,225 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Aho-Corasick automaton that finds all occurrences of many substrings in one pass over a text,
+ * independent of the number of patterns. Used to check audit log details against hundreds of
+ * expected fragments at once.
+ * <p>
+ * Trie transitions are kept in one open-addressing table keyed by (state, char), failure and
+ * output links in {@code int[]}s. Immutable once built, so one matcher can be shared across threads.
+ */
+public class AhoCorasickMatcher {
+
+    private final int patternCount;
+    private final int[] emptyPatterns; // Indexes of the empty patterns, which match every text
+
+    // Transitions: key = ((long) state << 16 | c) + 1, 0 marks an empty slot
+    private long[] transitionKeys;
+    private int[] transitionTargets;
+    private int transitionCount;
+
+    private int stateCount = 1; // State 0 is the root
+    private int[] fail = new int[16];
+    private int[] output = new int[16];     // Pattern ending in this state, or -1
+    private int[] outputLink = new int[16]; // Nearest state on the failure chain with an output, or -1
+    private int[] nextPattern;              // Further patterns equal to the one of a state, chained; -1 ends
+
+    /**
+     * @param patterns The substrings to search for; the pattern index is reported on a match.
+     *                 Duplicates are allowed and are all reported.
+     */
+    public AhoCorasickMatcher(List<String> patterns) {
+        this.patternCount = patterns.size();
+        this.nextPattern = new int[patternCount];
+        Arrays.fill(nextPattern, -1);
+        this.transitionKeys = new long[64];
+        this.transitionTargets = new int[64];
+        output[0] = -1;
+        int[] empty = new int[patternCount];
+        int emptyCount = 0;
+        for (int p = 0; p < patternCount; p++) {
+            if (patterns.get(p).isEmpty()) {
+                empty[emptyCount++] = p;
+            } else {
+                addPattern(patterns.get(p), p);
+            }
+        }
+        this.emptyPatterns = Arrays.copyOf(empty, emptyCount);
+        buildFailureLinks();
+    }
+
+    /**
+     * Reports the index of every pattern that occurs in {@code text}, once per occurrence.
+     */
+    public void forEachMatch(CharSequence text, IntConsumer patternIndex) {
+        for (int p : emptyPatterns) {
+            patternIndex.accept(p);
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = Math.max(next, 0);
+            for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                for (int p = output[s]; p >= 0; p = nextPattern[p]) {
+                    patternIndex.accept(p);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks in {@code found} every pattern occurring in {@code text}. Entries already {@code true}
+     * are left as they are.
+     */
+    public void findAll(CharSequence text, boolean[] found) {
+        forEachMatch(text, p -> found[p] = true);
+    }
+
+    public int getPatternCount() {
+        return patternCount;
+    }
+
+    // --- Construction ---
+
+    private void addPattern(String pattern, int index) {
+        int state = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            int next = transition(state, pattern.charAt(i));
+            if (next < 0) {
+                next = newState();
+                putTransition(state, pattern.charAt(i), next);
+            }
+            state = next;
+        }
+        if (output[state] >= 0) {
+            // Same pattern seen before: chain behind the existing one
+            int last = output[state];
+            while (nextPattern[last] >= 0) {
+                last = nextPattern[last];
+            }
+            nextPattern[last] = index;
+        } else {
+            output[state] = index;
+        }
+    }
+
+    // Breadth-first over the trie, so failure links always point to already finished states
+    private void buildFailureLinks() {
+        int[] children = childrenByState();
+        int[] firstChild = new int[stateCount + 1];
+        for (int i = 0; i < transitionCount; i++) {
+            firstChild[children[i * 3] + 1]++;
+        }
+        for (int s = 0; s < stateCount; s++) {
+            firstChild[s + 1] += firstChild[s];
+        }
+
+        int[] queue = new int[stateCount];
+        int head = 0, tail = 0;
+        fail[0] = 0;
+        outputLink[0] = -1;
+        queue[tail++] = 0;
+        while (head < tail) {
+            int state = queue[head++];
+            for (int i = firstChild[state]; i < firstChild[state + 1]; i++) {
+                char c = (char) children[i * 3 + 1];
+                int child = children[i * 3 + 2];
+                int f = fail[state];
+                int target = -1;
+                if (state != 0) {
+                    while ((target = transition(f, c)) < 0 && f != 0) {
+                        f = fail[f];
+                    }
+                }
+                fail[child] = state == 0 || target < 0 ? 0 : target;
+                outputLink[child] = output[fail[child]] >= 0 ? fail[child] : outputLink[fail[child]];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    // (parent, char, child) triples sorted by parent
+    private int[] childrenByState() {
+        int[] triples = new int[transitionCount * 3];
+        int count = 0;
+        for (int slot = 0; slot < transitionKeys.length; slot++) {
+            if (transitionKeys[slot] != 0) {
+                long key = transitionKeys[slot] - 1;
+                triples[count * 3] = (int) (key >>> 16);
+                triples[count * 3 + 1] = (int) (key & 0xFFFF);
+                triples[count * 3 + 2] = transitionTargets[slot];
+                count++;
+            }
+        }
+        // Counting sort by parent keeps this linear
+        int[] offsets = new int[stateCount + 1];
+        for (int i = 0; i < count; i++) {
+            offsets[triples[i * 3] + 1]++;
+        }
+        for (int s = 0; s < stateCount; s++) {
+            offsets[s + 1] += offsets[s];
+        }
+        int[] sorted = new int[triples.length];
+        for (int i = 0; i < count; i++) {
+            int at = offsets[triples[i * 3]]++ * 3;
+            System.arraycopy(triples, i * 3, sorted, at, 3);
+        }
+        return sorted;
+    }
+
+    private int newState() {
+        if (stateCount == fail.length) {
+            fail = Arrays.copyOf(fail, stateCount * 2);
+            output = Arrays.copyOf(output, stateCount * 2);
+            outputLink = Arrays.copyOf(outputLink, stateCount * 2);
+        }
+        output[stateCount] = -1;
+        return stateCount++;
+    }
+
+    // --- Transition table ---
+
+    private int transition(int state, char c) {
+        long key = ((long) state << 16 | c) + 1;
+        int mask = transitionKeys.length - 1;
+        for (int slot = LongHashing.slotOf(key, mask); transitionKeys[slot] != 0; slot = (slot + 1) & mask) {
+            if (transitionKeys[slot] == key) {
+                return transitionTargets[slot];
+            }
+        }
+        return -1;
+    }
+
+    private void putTransition(int state, char c, int target) {
+        if (transitionCount + 1 > transitionKeys.length * LongHashing.MAX_LOAD) {
+            long[] oldKeys = transitionKeys;
+            int[] oldTargets = transitionTargets;
+            int capacity = LongHashing.grow(oldKeys.length);
+            transitionKeys = new long[capacity];
+            transitionTargets = new int[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    insert(oldKeys[i], oldTargets[i]);
+                }
+            }
+        }
+        insert(((long) state << 16 | c) + 1, target);
+        transitionCount++;
+    }
+
+    private void insert(long key, int target) {
+        int mask = transitionKeys.length - 1;
+        int slot = LongHashing.slotOf(key, mask);
+        while (transitionKeys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        transitionKeys[slot] = key;
+        transitionTargets[slot] = target;
+    }
+}
@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class AhoCorasickMatcherTest {
+
+    @Test
+    void overlappingAndNestedPatterns_areAllReported() {
+        // The classic example: "she" ends inside "hers", "he" inside both
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("he", "she", "his", "hers"));
+        assertArrayEquals(new int[] {1, 1, 0, 1}, counts(matcher, "ushers"));
+        assertArrayEquals(new int[] {3, 0, 0, 0}, counts(matcher, "hehehe"));
+        assertArrayEquals(new int[] {2}, counts(new AhoCorasickMatcher(List.of("aa")), "aaa"));
+    }
+
+    @Test
+    void duplicatePatterns_areReportedForEachIndex() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("Report", "port", "Report"));
+        assertArrayEquals(new int[] {1, 1, 1}, counts(matcher, "Report downloaded"));
+    }
+
+    @Test
+    void emptyPatterns_matchOncePerTextIncludingTheEmptyText() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("", "Report", ""));
+        assertArrayEquals(new int[] {1, 2, 1}, counts(matcher, "Report, Report"));
+        assertArrayEquals(new int[] {1, 0, 1}, counts(matcher, ""));
+        assertArrayEquals(new int[0], counts(new AhoCorasickMatcher(List.of()), "anything"));
+    }
+
+    @Test
+    void charsOutsideAscii_areMatchedLikeAnyOther() {
+        // U+FFFF is the largest char the transition key holds
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("\uffff", "\u4e2d\u6587", "\ud83d\ude00"));
+        assertArrayEquals(new int[] {2, 1, 1}, counts(matcher, "\uffffa\u4e2d\u6587\ud83d\ude00\uffff"));
+    }
+
+    @Test
+    void findAll_onlyAddsToWhatIsAlreadyFound() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("a", "b", "c"));
+        boolean[] found = {false, true, false};
+        matcher.findAll("a", found);
+        assertArrayEquals(new boolean[] {true, true, false}, found);
+    }
+
+    private static int[] counts(AhoCorasickMatcher matcher, String text) {
+        int[] counts = new int[matcher.getPatternCount()];
+        matcher.forEachMatch(text, p -> counts[p]++);
+        return counts;
+    }
+}
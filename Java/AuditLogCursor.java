@@ -0,0 +1,100 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental reader of the audit log. The cursor remembers the latest timestamp and the highest
+ * auditRecordId it has returned, and each {@link #poll()} returns only the entries written since,
+ * so checking what an action wrote costs in proportion to the new entries instead of the whole window.
+ * <p>
+ * Audit writes are asynchronous, so an entry can become visible after entries with a later
+ * timestamp. Each poll therefore queries from the watermark minus {@code lag} and skips the
+ * entries of that overlap it has already returned.
+ */
+public class AuditLogCursor {
+
+    private final AuditLogService auditLogService;
+    private final LocalDateTime from;
+    private final Duration lag;
+
+    private LocalDateTime watermark;
+    private long highestAuditRecordId = Long.MIN_VALUE;
+    // IDs already returned whose timestamp is inside the lag overlap of the next query
+    private LongHashSet recentIds = new LongHashSet();
+
+    /**
+     * @param auditLogService The service to read from.
+     * @param from The first poll returns the entries after this date.
+     * @param lag How late an entry may become visible relative to its timestamp.
+     */
+    public AuditLogCursor(AuditLogService auditLogService, LocalDateTime from, Duration lag) {
+        this.auditLogService = auditLogService;
+        this.from = from;
+        this.watermark = from;
+        this.lag = lag;
+    }
+
+    /**
+     * Returns the entries that became visible since the previous poll, oldest first as returned
+     * by the service.
+     */
+    public synchronized List<AuditLog> poll() {
+        List<AuditLog> window = auditLogService.findEntriesAfter(queryStart(watermark));
+
+        List<AuditLog> newEntries = new ArrayList<>();
+        LocalDateTime newWatermark = watermark;
+        for (AuditLog entry : window) {
+            Long id = entry.getAuditRecordId();
+            if (id != null && recentIds.contains(id)) {
+                continue;
+            }
+            newEntries.add(entry);
+            if (id != null) {
+                highestAuditRecordId = Math.max(highestAuditRecordId, id);
+            }
+            if (entry.getTimestamp() != null && entry.getTimestamp().isAfter(newWatermark)) {
+                newWatermark = entry.getTimestamp();
+            }
+        }
+
+        // Remember what the next query will return again
+        LocalDateTime nextQueryFrom = queryStart(newWatermark);
+        LongHashSet overlap = new LongHashSet();
+        for (AuditLog entry : window) {
+            if (entry.getAuditRecordId() != null
+                    && (entry.getTimestamp() == null || entry.getTimestamp().isAfter(nextQueryFrom))) {
+                overlap.add(entry.getAuditRecordId());
+            }
+        }
+        recentIds = overlap;
+        watermark = newWatermark;
+        return newEntries;
+    }
+
+    private LocalDateTime queryStart(LocalDateTime watermark) {
+        LocalDateTime start = watermark.minus(lag);
+        return start.isBefore(from) ? from : start;
+    }
+
+    /**
+     * Marks everything currently visible as seen, so the next poll returns only later entries.
+     */
+    public synchronized void skipToHead() {
+        poll();
+    }
+
+    /**
+     * Latest entry timestamp returned so far, or the start date if nothing was returned yet.
+     */
+    public synchronized LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Highest auditRecordId returned so far, or {@code Long.MIN_VALUE} if nothing was returned yet.
+     */
+    public synchronized long getHighestAuditRecordId() {
+        return highestAuditRecordId;
+    }
+}
@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuditLogCursorTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+    private static final Duration LAG = Duration.ofSeconds(2);
+
+    private final List<AuditLog> visible = new ArrayList<>();
+    private final AuditLogService auditLogService = date -> visible.stream()
+            .filter(entry -> entry.getTimestamp().isAfter(date))
+            .sorted(Comparator.comparing(AuditLog::getTimestamp))
+            .collect(Collectors.toList());
+
+    @Test
+    void poll_onAnEmptyLogKeepsTheStartDate() {
+        AuditLogCursor cursor = new AuditLogCursor(auditLogService, START, LAG);
+        assertTrue(cursor.poll().isEmpty());
+        assertEquals(START, cursor.getWatermark());
+        assertEquals(Long.MIN_VALUE, cursor.getHighestAuditRecordId());
+    }
+
+    @Test
+    void poll_returnsALateEntryOnceIfItIsWithinTheLag() {
+        AuditLogCursor cursor = new AuditLogCursor(auditLogService, START, LAG);
+        visible.add(new AuditLog(2L, "Login", "", START.plusSeconds(10)));
+        assertEquals(List.of(2L), ids(cursor.poll()));
+
+        // Same timestamp as the watermark, and just inside the lag: both show up once
+        visible.add(new AuditLog(1L, "Login", "", START.plusSeconds(10)));
+        visible.add(new AuditLog(3L, "Login", "", START.plusSeconds(8).plusNanos(1)));
+        assertEquals(List.of(3L, 1L), ids(cursor.poll()));
+        assertTrue(cursor.poll().isEmpty());
+        assertEquals(3, cursor.getHighestAuditRecordId());
+        assertEquals(START.plusSeconds(10), cursor.getWatermark());
+
+        // Later than the lag allows: outside the overlap of the next query
+        visible.add(new AuditLog(4L, "Login", "", START.plusSeconds(8)));
+        assertTrue(cursor.poll().isEmpty());
+    }
+
+    @Test
+    void skipToHead_returnsOnlyLaterEntries() {
+        AuditLogCursor cursor = new AuditLogCursor(auditLogService, START, LAG);
+        assertEquals(START, cursor.getWatermark());
+        assertEquals(Long.MIN_VALUE, cursor.getHighestAuditRecordId());
+        visible.add(new AuditLog(1L, "Login", "", START.plusSeconds(1)));
+        visible.add(new AuditLog(2L, "Login", "", START.plusSeconds(2)));
+        cursor.skipToHead();
+
+        visible.add(new AuditLog(3L, "Download Report", "", START.plusSeconds(1).plusNanos(500_000_000)));
+        List<AuditLog> entries = cursor.poll();
+        assertEquals(1, entries.size());
+        assertEquals(Long.valueOf(3), entries.get(0).getAuditRecordId());
+        assertTrue(cursor.poll().isEmpty());
+    }
+
+    private static List<Long> ids(List<AuditLog> entries) {
+        return entries.stream().map(AuditLog::getAuditRecordId).collect(Collectors.toList());
+    }
+}
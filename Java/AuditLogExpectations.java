@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of expected audit log entries, each an action plus a fragment of its details, verified
+ * against a list of entries in one pass. All detail fragments are compiled into one
+ * {@link AhoCorasickMatcher}, so each entry's details are scanned once no matter how many
+ * expectations there are. Unlike {@link AuditLogUtils#verifySingleAuditLogEntry}, verification does
+ * not stop at the first mismatch: the {@link Report} lists every matched and every missed expectation.
+ */
+public class AuditLogExpectations {
+
+    private final List<Expectation> expectations = new ArrayList<>();
+    private volatile Compiled compiled;
+
+    /**
+     * Expects at least one entry with the given action whose details contain the given fragment.
+     */
+    public AuditLogExpectations expect(String action, String detailsFragment) {
+        return expect(action, detailsFragment, 1);
+    }
+
+    /**
+     * Expects at least {@code count} entries with the given action whose details contain the given fragment.
+     */
+    public synchronized AuditLogExpectations expect(String action, String detailsFragment, int count) {
+        expectations.add(new Expectation(action, detailsFragment, count));
+        compiled = null;
+        return this;
+    }
+
+    /**
+     * Matches every entry against all expectations and reports the outcome of each.
+     * An entry can satisfy several expectations.
+     */
+    public Report verify(List<AuditLog> auditLogs) {
+        Compiled c = compile();
+        List<List<AuditLog>> matches = new ArrayList<>(c.expectations.size());
+        for (int i = 0; i < c.expectations.size(); i++) {
+            matches.add(new ArrayList<>());
+        }
+        // Number of the last entry each pattern occurred in, so nothing needs clearing between entries
+        int[] foundIn = new int[c.matcher.getPatternCount()];
+        int entryNumber = 0;
+        for (AuditLog entry : auditLogs) {
+            int[] candidates = c.expectationsByAction.get(entry.getAction());
+            if (candidates == null || entry.getDetails() == null) {
+                continue;
+            }
+            int stamp = ++entryNumber;
+            c.matcher.forEachMatch(entry.getDetails(), p -> foundIn[p] = stamp);
+            for (int e : candidates) {
+                if (foundIn[c.patternOf[e]] == stamp) {
+                    matches.get(e).add(entry);
+                }
+            }
+        }
+        return new Report(c.expectations, matches);
+    }
+
+    /**
+     * Verifies the entries and throws one {@link AssertionError} listing every missed expectation.
+     */
+    public Report assertAllPresent(List<AuditLog> auditLogs) {
+        Report report = verify(auditLogs);
+        if (!report.getMisses().isEmpty()) {
+            throw new AssertionError(report.toString());
+        }
+        return report;
+    }
+
+    private synchronized Compiled compile() {
+        if (compiled == null) {
+            compiled = new Compiled(new ArrayList<>(expectations));
+        }
+        return compiled;
+    }
+
+    /**
+     * One expected entry: action, details fragment and minimum number of occurrences.
+     */
+    public static final class Expectation {
+        private final String action;
+        private final String detailsFragment;
+        private final int count;
+
+        private Expectation(String action, String detailsFragment, int count) {
+            this.action = action;
+            this.detailsFragment = detailsFragment;
+            this.count = count;
+        }
+
+        public String getAction() { return action; }
+        public String getDetailsFragment() { return detailsFragment; }
+        public int getCount() { return count; }
+
+        @Override
+        public String toString() {
+            return (count == 1 ? "" : count + " x ") + action + " [" + detailsFragment + "]";
+        }
+    }
+
+    /**
+     * Outcome of a verification: the entries matched by each expectation, and the expectations
+     * that were not met.
+     */
+    public static final class Report {
+        private final Map<Expectation, List<AuditLog>> matches = new LinkedHashMap<>();
+        private final List<Expectation> misses = new ArrayList<>();
+
+        private Report(List<Expectation> expectations, List<List<AuditLog>> matched) {
+            for (int i = 0; i < expectations.size(); i++) {
+                Expectation expectation = expectations.get(i);
+                matches.put(expectation, matched.get(i));
+                if (matched.get(i).size() < expectation.count) {
+                    misses.add(expectation);
+                }
+            }
+        }
+
+        public Map<Expectation, List<AuditLog>> getMatches() { return matches; }
+        public List<Expectation> getMisses() { return misses; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder()
+                    .append(matches.size() - misses.size()).append(" of ").append(matches.size())
+                    .append(" expected audit log entries found");
+            for (Expectation miss : misses) {
+                sb.append("\n  missing: ").append(miss).append(", found ").append(matches.get(miss).size());
+            }
+            return sb.toString();
+        }
+    }
+
+    // Expectations grouped by action, with one matcher over all distinct detail fragments
+    private static final class Compiled {
+        private final List<Expectation> expectations;
+        private final Map<String, int[]> expectationsByAction = new HashMap<>();
+        private final int[] patternOf;
+        private final AhoCorasickMatcher matcher;
+
+        private Compiled(List<Expectation> expectations) {
+            this.expectations = expectations;
+            this.patternOf = new int[expectations.size()];
+            Map<String, Integer> patternIndexes = new HashMap<>();
+            List<String> patterns = new ArrayList<>();
+            Map<String, List<Integer>> byAction = new HashMap<>();
+            for (int i = 0; i < expectations.size(); i++) {
+                Expectation expectation = expectations.get(i);
+                patternOf[i] = patternIndexes.computeIfAbsent(expectation.detailsFragment, fragment -> {
+                    patterns.add(fragment);
+                    return patterns.size() - 1;
+                });
+                byAction.computeIfAbsent(expectation.action, action -> new ArrayList<>()).add(i);
+            }
+            byAction.forEach((action, indexes) ->
+                    expectationsByAction.put(action, indexes.stream().mapToInt(Integer::intValue).toArray()));
+            this.matcher = new AhoCorasickMatcher(patterns);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AuditLogExpectationsTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Test
+    void fragmentFoundInOneEntry_doesNotCarryOverToTheNext() {
+        AuditLogExpectations expectations = new AuditLogExpectations()
+                .expect("Download Report", "report-7")
+                .expect("Login", "report-7");
+        AuditLogExpectations.Report report = expectations.verify(List.of(
+                new AuditLog(1L, "Download Report", "report-7 downloaded", NOW),
+                new AuditLog(2L, "Login", "user logged in", NOW)));
+        assertEquals(1, report.getMisses().size());
+        assertEquals("Login", report.getMisses().get(0).getAction());
+    }
+
+    @Test
+    void emptyFragment_matchesEveryEntryWithDetails() {
+        AuditLogExpectations expectations = new AuditLogExpectations()
+                .expect("Download Report", "", 2)
+                .expect("Download Report", "PDF", 2);
+        List<AuditLog> entries = List.of(
+                new AuditLog(1L, "Download Report", "PDF", NOW),
+                new AuditLog(2L, "Download Report", null, NOW),
+                new AuditLog(3L, "Download Report", "CSV", NOW));
+        AuditLogExpectations.Report report = expectations.verify(entries);
+        // The empty fragment matches both entries with details, not the one without
+        assertEquals(1, report.getMisses().size());
+        assertEquals("2 x Download Report [PDF]", report.getMisses().get(0).toString());
+        assertEquals(2, report.getMatches().values().iterator().next().size());
+        assertThrows(AssertionError.class, () -> expectations.assertAllPresent(entries));
+    }
+}
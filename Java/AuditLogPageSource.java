@@ -0,0 +1,30 @@
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keyset-paginated access to the audit log, for windows too large to load as one list.
+ * Pages are ordered by auditRecordId and each page starts after the last ID of the previous one,
+ * so every page is an index range scan on the primary key, however deep into the window it is.
+ * <p>
+ * Implemented by the application's audit log repository, e.g. with a query like
+ * {@code WHERE timestamp > :date AND audit_record_id > :afterId ORDER BY audit_record_id LIMIT :pageSize}.
+ */
+public interface AuditLogPageSource {
+
+    /**
+     * Returns up to {@code pageSize} entries with a timestamp after {@code date} and an
+     * auditRecordId greater than {@code afterAuditRecordId}, ordered by auditRecordId.
+     */
+    List<AuditLog> findEntriesAfter(LocalDateTime date, long afterAuditRecordId, int pageSize);
+
+    /**
+     * Same page as {@link #findEntriesAfter(LocalDateTime, long, int)}, projected to ID, action and details.
+     * Implementations should select only those columns; the default maps full entries.
+     */
+    default List<AuditLogSummary> findSummariesAfter(LocalDateTime date, long afterAuditRecordId, int pageSize) {
+        return findEntriesAfter(date, afterAuditRecordId, pageSize).stream()
+                .map(AuditLogSummary::of)
+                .collect(Collectors.toList());
+    }
+}
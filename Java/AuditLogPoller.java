@@ -0,0 +1,234 @@
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Waits for audit log entries to appear, for any number of concurrent waiters on one shared
+ * {@link AuditLogCursor}: parallel tests add one query per poll in total, not one each.
+ * <p>
+ * The poller only runs while someone is waiting. It polls again quickly after new entries arrived
+ * and backs off exponentially, with jitter, while nothing happens; a new waiter brings the next poll
+ * forward to the short delay. Entries seen recently are retained, up to {@link #MAX_RECENT_ENTRIES},
+ * so a waiter registered after its entry was already polled still finds it. After
+ * {@link #MAX_CONSECUTIVE_FAILURES} failed queries in a row the waiters fail with the query's error.
+ * All state is confined to the poller thread; only the per-waiter timeout runs on a timer of its own.
+ */
+public class AuditLogPoller implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogPoller.class);
+
+    /**
+     * Most entries retained for waiters registered later; the oldest are dropped first.
+     */
+    static final int MAX_RECENT_ENTRIES = 10_000;
+
+    /**
+     * Failed cursor queries in a row after which the pending waiters fail.
+     */
+    static final int MAX_CONSECUTIVE_FAILURES = 5;
+
+    private final AuditLogService auditLogService;
+    private final AuditLogCursor cursor;
+    private final LocalDateTime coveredFrom;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final Duration retention;
+    private final ScheduledExecutorService scheduler;
+
+    private final List<Waiter> waiters = new ArrayList<>();
+    private final Deque<AuditLog> recentEntries = new ArrayDeque<>();
+    private long delayMillis;
+    private ScheduledFuture<?> pendingPoll;
+    private int consecutiveFailures;
+
+    /**
+     * @param auditLogService The service to read from.
+     * @param lag How late an entry may become visible relative to its timestamp.
+     * @param minDelay Delay between polls while entries keep arriving.
+     * @param maxDelay Upper bound of the backoff while nothing arrives.
+     * @param retention How long polled entries stay available to waiters registered later.
+     */
+    public AuditLogPoller(AuditLogService auditLogService, Duration lag, Duration minDelay, Duration maxDelay,
+                          Duration retention) {
+        this.auditLogService = auditLogService;
+        this.coveredFrom = LocalDateTime.now().minus(lag);
+        this.cursor = new AuditLogCursor(auditLogService, coveredFrom, lag);
+        this.minDelayMillis = Math.max(1, minDelay.toMillis());
+        this.maxDelayMillis = Math.max(minDelayMillis, maxDelay.toMillis());
+        this.retention = retention;
+        this.delayMillis = minDelayMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "audit-log-poller");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Waits for {@code expectedCount} entries matching {@code matcher} with a timestamp after
+     * {@code since}. The future completes with the matching entries as soon as enough have
+     * appeared, or fails with a {@link TimeoutException} once {@code timeout} has passed.
+     */
+    public CompletableFuture<List<AuditLog>> await(Predicate<AuditLog> matcher, int expectedCount,
+                                                   LocalDateTime since, Duration timeout) {
+        Waiter waiter = new Waiter(matcher, expectedCount, since, System.nanoTime() + timeout.toNanos());
+        // Armed before any query runs, so a slow or hanging query cannot hold the waiter past its deadline
+        CompletableFuture.delayedExecutor(timeout.toNanos(), TimeUnit.NANOSECONDS).execute(waiter::timeOut);
+        scheduler.execute(() -> register(waiter));
+        return waiter.future;
+    }
+
+    private void register(Waiter waiter) {
+        if (waiter.since.isBefore(coveredFrom)) {
+            // Older than anything the shared cursor has read: look back once for this waiter
+            try {
+                auditLogService.findEntriesAfter(waiter.since).forEach(waiter::offer);
+            } catch (RuntimeException e) {
+                waiter.future.completeExceptionally(e);
+                return;
+            }
+        } else {
+            recentEntries.forEach(waiter::offer);
+        }
+        if (waiter.future.isDone()) {
+            return; // Timed out while the look-back query ran
+        }
+        if (waiter.isDone()) {
+            waiter.complete();
+            return;
+        }
+        waiters.add(waiter);
+        delayMillis = minDelayMillis;
+        // A poll backed off while nobody was waiting for long would keep the new waiter up to maxDelay
+        if (pendingPoll == null || pendingPoll.getDelay(TimeUnit.MILLISECONDS) > minDelayMillis) {
+            if (pendingPoll != null) {
+                pendingPoll.cancel(false);
+            }
+            schedulePoll();
+        }
+    }
+
+    private void poll() {
+        pendingPoll = null;
+        List<AuditLog> newEntries;
+        try {
+            newEntries = cursor.poll();
+            consecutiveFailures = 0;
+        } catch (RuntimeException e) {
+            consecutiveFailures++;
+            logger.warn("Polling the audit log failed ({} in a row): {}", consecutiveFailures, e.toString());
+            if (consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+                waiters.forEach(waiter -> waiter.future.completeExceptionally(e));
+                waiters.clear();
+                consecutiveFailures = 0;
+                return;
+            }
+            newEntries = List.of(); // Retried on the next poll; waiters still time out on their deadline
+        }
+        retain(newEntries);
+
+        long now = System.nanoTime();
+        for (Iterator<Waiter> it = waiters.iterator(); it.hasNext(); ) {
+            Waiter waiter = it.next();
+            newEntries.forEach(waiter::offer);
+            if (waiter.future.isDone()) {
+                it.remove(); // Timed out by its timer
+            } else if (waiter.isDone()) {
+                waiter.complete();
+                it.remove();
+            } else if (now - waiter.deadlineNanos >= 0) {
+                waiter.timeOut();
+                it.remove();
+            }
+        }
+
+        delayMillis = newEntries.isEmpty() ? Math.min(delayMillis * 2, maxDelayMillis) : minDelayMillis;
+        if (!waiters.isEmpty()) {
+            schedulePoll();
+        }
+    }
+
+    // Exponential backoff with equal jitter, but never past the nearest waiter deadline
+    private void schedulePoll() {
+        long half = delayMillis / 2;
+        long delay = half + ThreadLocalRandom.current().nextLong(half + 1);
+        long now = System.nanoTime();
+        for (Waiter waiter : waiters) {
+            delay = Math.min(delay, Math.max(0, TimeUnit.NANOSECONDS.toMillis(waiter.deadlineNanos - now)));
+        }
+        if (!scheduler.isShutdown()) {
+            pendingPoll = scheduler.schedule(this::poll, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void retain(List<AuditLog> newEntries) {
+        recentEntries.addAll(newEntries);
+        while (recentEntries.size() > MAX_RECENT_ENTRIES) {
+            recentEntries.removeFirst();
+        }
+        LocalDateTime horizon = LocalDateTime.now().minus(retention);
+        while (!recentEntries.isEmpty() && recentEntries.peekFirst().getTimestamp() != null
+                && recentEntries.peekFirst().getTimestamp().isBefore(horizon)) {
+            recentEntries.removeFirst();
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class Waiter {
+        private final Predicate<AuditLog> matcher;
+        private final int expectedCount;
+        private final LocalDateTime since;
+        private final long deadlineNanos;
+        private final List<AuditLog> matches = new ArrayList<>();
+        private volatile int matchCount; // Read by the timeout timer
+        private final LongHashSet matchedIds = new LongHashSet();
+        private final CompletableFuture<List<AuditLog>> future = new CompletableFuture<>();
+
+        private Waiter(Predicate<AuditLog> matcher, int expectedCount, LocalDateTime since, long deadlineNanos) {
+            this.matcher = matcher;
+            this.expectedCount = expectedCount;
+            this.since = since;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        private void offer(AuditLog entry) {
+            if ((entry.getTimestamp() == null || entry.getTimestamp().isAfter(since)) && matcher.test(entry)
+                    && (entry.getAuditRecordId() == null || matchedIds.add(entry.getAuditRecordId()))) {
+                matches.add(entry);
+                matchCount = matches.size();
+            }
+        }
+
+        private boolean isDone() {
+            return matches.size() >= expectedCount;
+        }
+
+        private void complete() {
+            future.complete(List.copyOf(matches));
+        }
+
+        private void timeOut() {
+            future.completeExceptionally(new TimeoutException("Found " + matchCount + " of "
+                    + expectedCount + " expected audit log entries"));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuditLogPollerTest {
+
+    private static final Duration LAG = Duration.ofSeconds(5);
+
+    private final List<AuditLog> visible = new CopyOnWriteArrayList<>();
+    private final AuditLogService auditLogService = date -> visible.stream()
+            .filter(entry -> entry.getTimestamp().isAfter(date))
+            .collect(Collectors.toList());
+
+    @Test
+    void newWaiter_doesNotWaitForABackedOffPoll() throws Exception {
+        // Eight empty polls back the delay off to at least 1.28s
+        CountDownLatch backedOff = new CountDownLatch(8);
+        AuditLogService counting = date -> {
+            backedOff.countDown();
+            return auditLogService.findEntriesAfter(date);
+        };
+        try (AuditLogPoller poller = new AuditLogPoller(counting, LAG, Duration.ofMillis(10), Duration.ofMinutes(1),
+                Duration.ofMinutes(5))) {
+            CompletableFuture<List<AuditLog>> idle = poller.await(entry -> false, 1, LocalDateTime.now(),
+                    Duration.ofMinutes(1));
+            assertTrue(backedOff.await(10, TimeUnit.SECONDS));
+
+            LocalDateTime since = LocalDateTime.now();
+            visible.add(new AuditLog(1L, "Login", "", since.plusNanos(1_000)));
+            List<AuditLog> found = poller.await(entry -> true, 1, since, Duration.ofSeconds(1))
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(1L, found.get(0).getAuditRecordId());
+            assertFalse(idle.isDone());
+        }
+    }
+
+    @Test
+    void repeatedQueryFailures_failTheWaiters() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        IllegalStateException failure = new IllegalStateException("database down");
+        AuditLogService failing = date -> {
+            queries.incrementAndGet();
+            throw failure;
+        };
+        try (AuditLogPoller poller = new AuditLogPoller(failing, LAG, Duration.ofMillis(1), Duration.ofMillis(5),
+                Duration.ofMinutes(5))) {
+            CompletableFuture<List<AuditLog>> waiter = poller.await(entry -> true, 1, LocalDateTime.now(),
+                    Duration.ofMinutes(1));
+            ExecutionException e = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+            assertEquals(AuditLogPoller.MAX_CONSECUTIVE_FAILURES, queries.get());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Projection of an audit log entry to the fields tests check: ID, action and details.
+ */
+public final class AuditLogSummary {
+
+    private final Long auditRecordId; // Null if the entry has none, as AuditLog allows
+    private final String action;
+    private final String details;
+
+    public AuditLogSummary(Long auditRecordId, String action, String details) {
+        this.auditRecordId = auditRecordId;
+        this.action = action;
+        this.details = details;
+    }
+
+    public static AuditLogSummary of(AuditLog entry) {
+        return new AuditLogSummary(entry.getAuditRecordId(), entry.getAction(), entry.getDetails());
+    }
+
+    public Long getAuditRecordId() { return auditRecordId; }
+    public String getAction() { return action; }
+    public String getDetails() { return details; }
+
+    @Override
+    public String toString() {
+        return "AuditLogSummary[" + auditRecordId + ", " + action + ", " + details + "]";
+    }
+}
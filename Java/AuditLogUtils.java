@@ -0,0 +1,387 @@
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+@Component
+public class AuditLogUtils {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogUtils.class);
+
+    // How late an audit entry may become visible relative to its timestamp
+    private static final Duration AUDIT_WRITE_LAG = Duration.ofSeconds(5);
+
+    @Autowired
+    private AuditLogService auditLogService;
+
+    // Optional: paged access for large windows, see streamAuditLogsAfter
+    @Autowired(required = false)
+    private AuditLogPageSource auditLogPageSource;
+    private final AtomicBoolean pageSourceMissingLogged = new AtomicBoolean();
+
+    // Shared by all waiters, created on the first await
+    private volatile AuditLogPoller auditLogPoller;
+
+    /**
+     * Retrieves all audit log entries after a given date.
+     *
+     * @param date The date after which to retrieve the audit log entries.
+     * @return A list of audit log entries.
+     */
+    public List<AuditLog> getAuditLogsAfter(LocalDateTime date) {
+        return auditLogService.findEntriesAfter(date);
+    }
+
+    /**
+     * Streams all audit log entries after a given date, fetching them in pages of {@code pageSize}
+     * ordered by auditRecordId, so memory use stays flat however large the window is.
+     * Without an {@link AuditLogPageSource} bean this falls back to loading the whole window,
+     * and logs a warning the first time it does.
+     *
+     * @param date The date after which to retrieve the audit log entries.
+     * @param pageSize The number of entries fetched per query.
+     * @return A lazily fetching stream of audit log entries.
+     */
+    public Stream<AuditLog> streamAuditLogsAfter(LocalDateTime date, int pageSize) {
+        if (auditLogPageSource == null) {
+            warnPageSourceMissing();
+            return getAuditLogsAfter(date).stream();
+        }
+        return new KeysetPageIterator<>(
+                (afterId, size) -> auditLogPageSource.findEntriesAfter(date, afterId, size),
+                AuditLog::getAuditRecordId, pageSize, Long.MIN_VALUE).stream();
+    }
+
+    /**
+     * Like {@link #streamAuditLogsAfter(LocalDateTime, int)}, but projected to ID, action and details.
+     *
+     * @param date The date after which to retrieve the audit log entries.
+     * @param pageSize The number of entries fetched per query.
+     * @return A lazily fetching stream of audit log summaries.
+     */
+    public Stream<AuditLogSummary> streamAuditLogSummariesAfter(LocalDateTime date, int pageSize) {
+        if (auditLogPageSource == null) {
+            warnPageSourceMissing();
+            return getAuditLogsAfter(date).stream().map(AuditLogSummary::of);
+        }
+        return new KeysetPageIterator<>(
+                (afterId, size) -> auditLogPageSource.findSummariesAfter(date, afterId, size),
+                AuditLogSummary::getAuditRecordId, pageSize, Long.MIN_VALUE).stream();
+    }
+
+    private void warnPageSourceMissing() {
+        if (pageSourceMissingLogged.compareAndSet(false, true)) {
+            logger.warn("No AuditLogPageSource bean: streaming audit logs loads each whole window into memory");
+        }
+    }
+
+    /**
+     * Opens a cursor positioned after the entries visible now; its polls return only entries
+     * written later, e.g. by the action under test.
+     *
+     * @return A cursor over new audit log entries.
+     */
+    public AuditLogCursor openCursor() {
+        AuditLogCursor cursor = openCursor(LocalDateTime.now().minus(AUDIT_WRITE_LAG));
+        cursor.skipToHead();
+        return cursor;
+    }
+
+    /**
+     * Opens a cursor whose first poll returns the entries after the given date.
+     *
+     * @param date The date after which to retrieve the audit log entries.
+     * @return A cursor over the audit log entries after the date.
+     */
+    public AuditLogCursor openCursor(LocalDateTime date) {
+        return new AuditLogCursor(auditLogService, date, AUDIT_WRITE_LAG);
+    }
+
+    /**
+     * Waits until the expected number of entries with the given action and details appear, instead
+     * of snapshotting the audit log after a fixed sleep. Returns as soon as they are visible.
+     *
+     * @param expectedAction The expected action of the entries.
+     * @param expectedDetails A regular expression found in the details of the entries.
+     * @param expectedCount The number of entries to wait for.
+     * @param since Only entries with a timestamp after this date count, e.g. the start of the test.
+     * @param timeout How long to wait.
+     * @return The matching audit log entries.
+     * @throws AssertionError if fewer entries appeared within the timeout.
+     */
+    public List<AuditLog> awaitAuditLogEntries(String expectedAction, String expectedDetails, int expectedCount,
+                                               LocalDateTime since, Duration timeout) {
+        try {
+            return awaitAuditLogEntriesAsync(expectedAction, expectedDetails, expectedCount, since, timeout).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new AssertionError("Expected " + expectedCount + " audit log entries with action "
+                        + expectedAction + " and details matching " + expectedDetails + " within " + timeout
+                        + ". " + e.getCause().getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #awaitAuditLogEntries(String, String, int, LocalDateTime, Duration)};
+     * the future fails with a {@link TimeoutException} if the entries do not appear in time.
+     * All waiters share one poller, so concurrent tests do not multiply audit log queries.
+     */
+    public CompletableFuture<List<AuditLog>> awaitAuditLogEntriesAsync(String expectedAction, String expectedDetails,
+                                                                     int expectedCount, LocalDateTime since,
+                                                                     Duration timeout) {
+        Pattern details = Pattern.compile(expectedDetails);
+        return auditLogPoller().await(
+                entry -> expectedAction.equals(entry.getAction())
+                        && entry.getDetails() != null && details.matcher(entry.getDetails()).find(),
+                expectedCount, since, timeout);
+    }
+
+    // --- Correlation-scoped lookup ---
+    //
+    // A test tags the requests it makes with its own correlation ID, which the application writes
+    // into the details of the audit entries it produces. Filtering on that ID instead of diffing
+    // time-window snapshots means entries written by concurrently running tests never interfere.
+
+    /**
+     * Creates a correlation ID for a test to pass along with its requests.
+     *
+     * @return A new, unique correlation ID.
+     */
+    public String newCorrelationId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Retrieves the audit log entries after a given date that carry the correlation ID.
+     *
+     * @param correlationId The correlation ID the test tagged its requests with.
+     * @param date The date after which to retrieve the audit log entries.
+     * @return The audit log entries written for this correlation ID.
+     */
+    public List<AuditLog> getCorrelatedAuditLogs(String correlationId, LocalDateTime date) {
+        return getAuditLogsAfter(date).stream()
+                .filter(entry -> isCorrelated(entry, correlationId))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Waits until the expected number of entries with the given action and correlation ID appear.
+     *
+     * @param correlationId The correlation ID the test tagged its requests with.
+     * @param expectedAction The expected action of the entries.
+     * @param expectedCount The number of entries to wait for.
+     * @param since Only entries with a timestamp after this date count, e.g. the start of the test.
+     * @param timeout How long to wait.
+     * @return The matching audit log entries.
+     * @throws AssertionError if fewer entries appeared within the timeout.
+     */
+    public List<AuditLog> awaitCorrelatedAuditLogEntries(String correlationId, String expectedAction, int expectedCount,
+                                                         LocalDateTime since, Duration timeout) {
+        return awaitAuditLogEntries(expectedAction, Pattern.quote(correlationId), expectedCount, since, timeout);
+    }
+
+    /**
+     * Non-blocking variant of {@link #awaitCorrelatedAuditLogEntries(String, String, int, LocalDateTime, Duration)}.
+     */
+    public CompletableFuture<List<AuditLog>> awaitCorrelatedAuditLogEntriesAsync(String correlationId,
+                                                                               String expectedAction, int expectedCount,
+                                                                               LocalDateTime since, Duration timeout) {
+        return awaitAuditLogEntriesAsync(expectedAction, Pattern.quote(correlationId), expectedCount, since, timeout);
+    }
+
+    /**
+     * Verifies that exactly one of the entries carries the correlation ID, and that it matches the
+     * expected action and details. Entries of other correlation IDs are ignored.
+     *
+     * @param auditLogs The audit log entries to check, e.g. everything after the start of the test.
+     * @param correlationId The correlation ID the test tagged its requests with.
+     * @param expectedAction The expected action of the entry.
+     * @param expectedDetails A part of the expected details to verify.
+     */
+    public void verifySingleCorrelatedAuditLogEntry(List<AuditLog> auditLogs, String correlationId,
+                                                    String expectedAction, String expectedDetails) {
+        verifySingleAuditLogEntry(auditLogs.stream()
+                .filter(entry -> isCorrelated(entry, correlationId))
+                .collect(Collectors.toList()), expectedAction, expectedDetails);
+    }
+
+    private static boolean isCorrelated(AuditLog entry, String correlationId) {
+        return entry.getDetails() != null && entry.getDetails().contains(correlationId);
+    }
+
+    /**
+     * Opens a poller of its own that queries the audit log every {@code pollInterval} (jittered
+     * down to half of it), without backing off while nothing arrives. Meant for measurements that
+     * need a fixed resolution; every open poller adds its own queries. Close it when done.
+     */
+    public AuditLogPoller openPoller(Duration pollInterval) {
+        return new AuditLogPoller(auditLogService, AUDIT_WRITE_LAG, pollInterval, pollInterval, Duration.ofMinutes(5));
+    }
+
+    private AuditLogPoller auditLogPoller() {
+        AuditLogPoller poller = auditLogPoller;
+        if (poller == null) {
+            synchronized (this) {
+                poller = auditLogPoller;
+                if (poller == null) {
+                    poller = new AuditLogPoller(auditLogService, AUDIT_WRITE_LAG, Duration.ofMillis(50),
+                            Duration.ofSeconds(2), Duration.ofMinutes(5));
+                    auditLogPoller = poller;
+                }
+            }
+        }
+        return poller;
+    }
+
+    /**
+     * Stops the shared poller's thread. Waiters still pending fail on their timeout.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (auditLogPoller != null) {
+            auditLogPoller.close();
+            auditLogPoller = null;
+        }
+    }
+
+    /**
+     * Filters out old audit log entries from the final list based on the initial list.
+     * Entries are matched on auditRecordId through a hash set, so the diff is linear in the
+     * size of both lists; entries without an auditRecordId always count as new.
+     *
+     * @param initialLogs The list of audit log entries before the action.
+     * @param finalLogs The list of audit log entries after the action.
+     * @return A list of new audit log entries.
+     */
+    public List<AuditLog> getNewAuditLogs(List<AuditLog> initialLogs, List<AuditLog> finalLogs) {
+        return getNewAuditLogs(getAuditRecordIdSet(initialLogs), finalLogs.stream());
+    }
+
+    /**
+     * Streaming variant of {@link #getNewAuditLogs(List, List)}: only the IDs of the initial entries
+     * are kept, and of the final entries only the new ones are collected.
+     *
+     * @param initialIds The auditRecordIds present before the action, see {@link #getAuditRecordIdSet(List)}.
+     * @param finalLogs The audit log entries after the action.
+     * @return A list of new audit log entries.
+     */
+    public List<AuditLog> getNewAuditLogs(LongHashSet initialIds, Stream<AuditLog> finalLogs) {
+        return finalLogs
+                .filter(entry -> entry.getAuditRecordId() == null || !initialIds.contains(entry.getAuditRecordId()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Collects the auditRecordIds of the given entries into a primitive hash set.
+     *
+     * @param auditLogs The list of AuditLog entries.
+     * @return The set of their auditRecordIds; entries without one are skipped.
+     */
+    public LongHashSet getAuditRecordIdSet(List<AuditLog> auditLogs) {
+        LongHashSet ids = new LongHashSet(auditLogs.size());
+        for (AuditLog entry : auditLogs) {
+            if (entry.getAuditRecordId() != null) {
+                ids.add(entry.getAuditRecordId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Verifies that only one new audit log entry is present and matches expected action and details.
+     *
+     * @param newAuditLogs The list of new audit log entries.
+     * @param expectedAction The expected action of the new audit log entry.
+     * @param expectedDetails A part of the expected details to verify.
+     */
+    public void verifySingleAuditLogEntry(List<AuditLog> newAuditLogs, String expectedAction, String expectedDetails) {
+        if (newAuditLogs.size() != 1) {
+            throw new AssertionError("Expected only one new audit log entry, but found " + newAuditLogs.size());
+        }
+        AuditLog newEntry = newAuditLogs.get(0);
+        if (!newEntry.getAction().equals(expectedAction)) {
+            throw new AssertionError("Audit log entry action does not match expected value. Expected: " 
+                    + expectedAction + ", but was: " + newEntry.getAction());
+        }
+        if (!newEntry.getDetails().contains(expectedDetails)) {
+            throw new AssertionError("Audit log entry details do not match expected content. Expected to contain: " 
+                    + expectedDetails);
+        }
+    }
+
+    /**
+     * Verifies many expected entries at once, e.g. all audit events of a batch, in a single pass
+     * over the entries.
+     *
+     * @param auditLogs The list of audit log entries to check.
+     * @param expectations The expected actions and details fragments.
+     * @return The entries matched by each expectation.
+     * @throws AssertionError listing every expectation that was not met.
+     */
+    public AuditLogExpectations.Report verifyAuditLogEntries(List<AuditLog> auditLogs, AuditLogExpectations expectations) {
+        return expectations.assertAllPresent(auditLogs);
+    }
+
+    /**
+     * Extracts auditRecordIds from a list of AuditLog entries and returns them as an array.
+     *
+     * @param auditLogs The list of AuditLog entries.
+     * @return An array of auditRecordIds.
+     */
+    public Long[] extractAuditRecordIds(List<AuditLog> auditLogs) {
+        return auditLogs.stream()
+                .map(AuditLog::getAuditRecordId)
+                .toArray(Long[]::new);
+    }
+
+    /**
+     * Extracts auditRecordIds from a list of AuditLog entries without boxing them.
+     *
+     * @param auditLogs The list of AuditLog entries.
+     * @return An array of auditRecordIds; entries without one are skipped.
+     */
+    public long[] extractAuditRecordIdArray(List<AuditLog> auditLogs) {
+        return streamAuditRecordIds(auditLogs).toArray();
+    }
+
+    /**
+     * Streams the auditRecordIds of a list of AuditLog entries, e.g. into a follow-up query.
+     *
+     * @param auditLogs The list of AuditLog entries.
+     * @return The auditRecordIds; entries without one are skipped.
+     */
+    public LongStream streamAuditRecordIds(List<AuditLog> auditLogs) {
+        return auditLogs.stream()
+                .map(AuditLog::getAuditRecordId)
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue);
+    }
+
+    /**
+     * Collects the auditRecordIds of a list of AuditLog entries into a compressed set, for set
+     * comparisons between windows or runs and for storing them on disk.
+     *
+     * @param auditLogs The list of AuditLog entries.
+     * @return The set of their auditRecordIds; entries without one are skipped.
+     */
+    public AuditRecordIdSet extractAuditRecordIdSet(List<AuditLog> auditLogs) {
+        return AuditRecordIdSet.of(extractAuditRecordIdArray(auditLogs));
+    }
+}
@@ -0,0 +1,197 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Measures how long audit entries take to become visible after the action that writes them,
+ * e.g. a report download. Fires actions at a fixed rate, each tagged with its own correlation ID,
+ * and times each one until its entry shows up in the audit log.
+ * <p>
+ * Actions are started on schedule whether or not earlier ones have finished, and latency is counted
+ * from the scheduled start, so a backlog in the audit pipeline shows up in the numbers instead of
+ * slowing the load down. Each run polls through a poller of its own at a fixed {@link #POLL_INTERVAL}
+ * instead of the shared, backing-off one, so the resolution is {@link #POLL_INTERVAL} however long
+ * an entry takes to appear.
+ */
+public class AuditPropagationBenchmark {
+
+    /**
+     * Upper bound of the time between two audit log queries during a run.
+     */
+    public static final Duration POLL_INTERVAL = Duration.ofMillis(50);
+
+    private final AuditLogUtils auditLogUtils;
+    private final String expectedAction;
+    private final Consumer<String> action;
+
+    /**
+     * @param auditLogUtils Used to await the audit entries.
+     * @param expectedAction The action of the audit entry each run of {@code action} writes.
+     * @param action Performs the audited action, tagged with the given correlation ID.
+     */
+    public AuditPropagationBenchmark(AuditLogUtils auditLogUtils, String expectedAction, Consumer<String> action) {
+        this.auditLogUtils = auditLogUtils;
+        this.expectedAction = expectedAction;
+        this.action = action;
+    }
+
+    /**
+     * Fires {@code requests} actions at {@code ratePerSecond} and waits for all audit entries,
+     * or {@code timeout} per entry. Gives up after the schedule plus twice {@code timeout}, so a hung
+     * action cannot stall the run; entries still outstanding then count as timed out.
+     */
+    public Result run(int requests, double ratePerSecond, Duration timeout) throws InterruptedException {
+        LocalDateTime since = LocalDateTime.now().minusSeconds(1);
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        // Written by poller threads; entries still outstanding after the wait may complete during the snapshot
+        AtomicLongArray latencies = new AtomicLongArray(requests);
+        for (int i = 0; i < requests; i++) {
+            latencies.set(i, -1);
+        }
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(requests);
+
+        AuditLogPoller poller = auditLogUtils.openPoller(POLL_INTERVAL);
+        ScheduledExecutorService pacer = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService workers = Executors.newCachedThreadPool();
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < requests; i++) {
+                int index = i;
+                long scheduledStart = start + i * intervalNanos;
+                pacer.schedule(() -> workers.execute(() -> {
+                    String correlationId = auditLogUtils.newCorrelationId();
+                    CompletableFuture<List<AuditLog>> visible;
+                    try {
+                        action.accept(correlationId);
+                        visible = poller.await(entry -> expectedAction.equals(entry.getAction())
+                                && entry.getDetails() != null && entry.getDetails().contains(correlationId),
+                                1, since, timeout);
+                    } catch (Throwable e) {
+                        // Errors too, or the latch would never reach zero
+                        failed.incrementAndGet();
+                        done.countDown();
+                        return;
+                    }
+                    visible.whenComplete((entries, error) -> {
+                        if (error == null) {
+                            latencies.set(index, System.nanoTime() - scheduledStart);
+                        }
+                        done.countDown();
+                    });
+                }), scheduledStart - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+            long lastStart = (requests - 1) * intervalNanos;
+            done.await(lastStart + 2 * timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } finally {
+            pacer.shutdownNow();
+            workers.shutdownNow();
+            poller.close();
+        }
+        long elapsed = System.nanoTime() - start;
+        long[] snapshot = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            snapshot[i] = latencies.get(i);
+        }
+        return new Result(ratePerSecond, requests, failed.get(), snapshot, elapsed);
+    }
+
+    /**
+     * Runs at increasing rates, starting at {@code startRate} and growing by half each step, until
+     * a step misses an entry or its p99 latency exceeds {@code p99Limit}. The last step that passed
+     * gives the maximum sustainable rate.
+     *
+     * @return The results of all steps, the failing one last.
+     */
+    public List<Result> findMaxSustainableRate(int requestsPerStep, double startRate, double maxRate,
+                                               Duration p99Limit, Duration timeout) throws InterruptedException {
+        List<Result> steps = new ArrayList<>();
+        for (double rate = startRate; rate <= maxRate; rate *= 1.5) {
+            Result result = run(requestsPerStep, rate, timeout);
+            steps.add(result);
+            if (!result.isSustainable(p99Limit)) {
+                break;
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Returns the highest rate among the steps that were sustainable, or 0 if none was.
+     */
+    public static double maxSustainableRate(List<Result> steps, Duration p99Limit) {
+        return steps.stream()
+                .filter(step -> step.isSustainable(p99Limit))
+                .mapToDouble(Result::getOfferedRate)
+                .max().orElse(0);
+    }
+
+    /**
+     * Latencies of one run, from scheduled action start until the audit entry was visible.
+     */
+    public static final class Result {
+        private final double offeredRate;
+        private final int requests;
+        private final int failed;
+        private final int timedOut;
+        private final long[] sortedLatencies; // Nanoseconds, visible entries only
+        private final long elapsedNanos;
+
+        private Result(double offeredRate, int requests, int failed, long[] latencies, long elapsedNanos) {
+            this.offeredRate = offeredRate;
+            this.requests = requests;
+            this.failed = failed;
+            this.sortedLatencies = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+            this.timedOut = requests - failed - sortedLatencies.length;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double getOfferedRate() { return offeredRate; }
+        public int getRequests() { return requests; }
+        public int getFailed() { return failed; }
+        public int getTimedOut() { return timedOut; }
+
+        /**
+         * Entries that became visible per second, over the whole run.
+         */
+        public double getAchievedRate() {
+            return sortedLatencies.length * 1e9 / elapsedNanos;
+        }
+
+        public Duration getPercentile(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return Duration.ZERO;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+            return Duration.ofNanos(sortedLatencies[Math.max(0, Math.min(rank, sortedLatencies.length - 1))]);
+        }
+
+        public Duration getMax() {
+            return getPercentile(100);
+        }
+
+        public boolean isSustainable(Duration p99Limit) {
+            return failed == 0 && timedOut == 0 && getPercentile(99).compareTo(p99Limit) <= 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("rate=%.1f/s requests=%d visible=%d failed=%d timedOut=%d achieved=%.1f/s "
+                            + "p50=%dms p90=%dms p99=%dms max=%dms",
+                    offeredRate, requests, sortedLatencies.length, failed, timedOut, getAchievedRate(),
+                    getPercentile(50).toMillis(), getPercentile(90).toMillis(), getPercentile(99).toMillis(),
+                    getMax().toMillis());
+        }
+    }
+}
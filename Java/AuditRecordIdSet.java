@@ -0,0 +1,644 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Compressed set of audit record IDs, laid out like a roaring bitmap: IDs are split into a high
+ * part (all but the lowest 16 bits) and a 16-bit low part. Each distinct high part owns a container
+ * holding its low parts, either as a sorted {@code char[]} while it has at most 4096 values or as a
+ * 65536-bit bitmap beyond that. Mostly sequential IDs, as audit record IDs are, take about two bytes
+ * each or less.
+ * <p>
+ * {@link #or}, {@link #and} and {@link #andNot} work container by container and return new sets.
+ * {@link #writeTo} stores containers of consecutive IDs as runs, so sets of whole test runs can be
+ * kept on disk and compared later. Not thread-safe while being modified.
+ */
+public class AuditRecordIdSet {
+
+    private static final int MAGIC = 0x41524953; // "ARIS"
+    private static final int MAX_ARRAY_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private static final byte ARRAY = 0;
+    private static final byte BITMAP = 1;
+    private static final byte RUNS = 2;
+
+    // Sorted by high part; containers[i] holds the low parts of highs[i]
+    private long[] highs = new long[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    /**
+     * Creates a set of the given IDs, which may be unsorted and contain duplicates.
+     */
+    public static AuditRecordIdSet of(long... ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        AuditRecordIdSet set = new AuditRecordIdSet();
+        for (long id : sorted) {
+            set.add(id); // Sorted input always appends to the last container
+        }
+        return set;
+    }
+
+    /**
+     * @return {@code true} if the ID was not yet in the set
+     */
+    public boolean add(long id) {
+        long high = id >> 16;
+        int index = indexOf(high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high, new ArrayContainer());
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.add((char) id);
+        return containers[index].cardinality() > before;
+    }
+
+    public boolean contains(long id) {
+        int index = indexOf(id >> 16);
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * IDs in both sets.
+     */
+    public AuditRecordIdSet and(AuditRecordIdSet other) {
+        AuditRecordIdSet result = new AuditRecordIdSet();
+        for (int i = 0, j = 0; i < size && j < other.size; ) {
+            int cmp = Long.compare(highs[i], other.highs[j]);
+            if (cmp == 0) {
+                result.appendIfNotEmpty(highs[i], containers[i++].and(other.containers[j++]));
+            } else if (cmp < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * IDs in either set.
+     */
+    public AuditRecordIdSet or(AuditRecordIdSet other) {
+        AuditRecordIdSet result = new AuditRecordIdSet();
+        int i = 0, j = 0;
+        while (i < size || j < other.size) {
+            int cmp = i == size ? 1 : j == other.size ? -1 : Long.compare(highs[i], other.highs[j]);
+            if (cmp == 0) {
+                result.appendIfNotEmpty(highs[i], containers[i++].or(other.containers[j++]));
+            } else if (cmp < 0) {
+                result.appendIfNotEmpty(highs[i], containers[i++].copy());
+            } else {
+                result.appendIfNotEmpty(other.highs[j], other.containers[j++].copy());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * IDs in this set but not in {@code other}, e.g. the records a run wrote that a baseline did not.
+     */
+    public AuditRecordIdSet andNot(AuditRecordIdSet other) {
+        AuditRecordIdSet result = new AuditRecordIdSet();
+        for (int i = 0, j = 0; i < size; i++) {
+            while (j < other.size && other.highs[j] < highs[i]) {
+                j++;
+            }
+            boolean overlaps = j < other.size && other.highs[j] == highs[i];
+            result.appendIfNotEmpty(highs[i], overlaps ? containers[i].andNot(other.containers[j]) : containers[i].copy());
+        }
+        return result;
+    }
+
+    /**
+     * Visits the IDs in ascending order.
+     */
+    public void forEach(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(highs[i] << 16, action);
+        }
+    }
+
+    public LongStream stream() {
+        return LongStream.of(toArray());
+    }
+
+    /**
+     * Returns the IDs in ascending order.
+     */
+    public long[] toArray() {
+        long cardinality = cardinality();
+        if (cardinality > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many IDs for an array: " + cardinality);
+        }
+        long[] ids = new long[(int) cardinality];
+        int[] count = {0};
+        forEach(id -> ids[count[0]++] = id);
+        return ids;
+    }
+
+    // --- Serialization ---
+
+    /**
+     * Writes the set in a compact binary form; each container is stored as a sorted array,
+     * a bitmap or a list of runs, whichever is smallest.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(highs[i]);
+            containers[i].writeTo(out);
+        }
+    }
+
+    /**
+     * Reads a set written by {@link #writeTo}.
+     *
+     * @throws IOException If the input cannot be read or does not hold a valid set.
+     */
+    public static AuditRecordIdSet readFrom(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an audit record ID set");
+        }
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Negative container count " + count);
+        }
+        AuditRecordIdSet set = new AuditRecordIdSet();
+        for (int i = 0; i < count; i++) {
+            long high = in.readLong();
+            if (high < Long.MIN_VALUE >> 16 || high > Long.MAX_VALUE >> 16
+                    || (set.size > 0 && high <= set.highs[set.size - 1])) {
+                throw new IOException("Container " + i + " out of order or range: " + high);
+            }
+            Container container = Container.readFrom(in);
+            if (container.cardinality() == 0) {
+                throw new IOException("Empty container " + i);
+            }
+            set.insertContainer(set.size, high, container);
+        }
+        return set;
+    }
+
+    // --- Container bookkeeping ---
+
+    private int indexOf(long high) {
+        // The last container is the common case when IDs are added in ascending order
+        if (size > 0 && highs[size - 1] == high) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(highs, 0, size, high);
+    }
+
+    private void insertContainer(int index, long high, Container container) {
+        if (size == highs.length) {
+            highs = Arrays.copyOf(highs, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(highs, index, highs, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        highs[index] = high;
+        containers[index] = container;
+        size++;
+    }
+
+    // Callers append in ascending high order
+    private void appendIfNotEmpty(long high, Container container) {
+        if (container.cardinality() > 0) {
+            insertContainer(size, high, container);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AuditRecordIdSet)) return false;
+        return Arrays.equals(toArray(), ((AuditRecordIdSet) o).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return "AuditRecordIdSet[cardinality=" + cardinality() + ", containers=" + size + "]";
+    }
+
+    // --- Containers ---
+
+    private abstract static class Container {
+
+        abstract int cardinality();
+
+        abstract boolean contains(char low);
+
+        // Returns the container holding the result, which may be a converted one
+        abstract Container add(char low);
+
+        abstract void forEach(long base, LongConsumer action);
+
+        abstract Container copy();
+
+        abstract long[] toBitmap();
+
+        Container and(Container other) {
+            long[] bits = toBitmap();
+            long[] otherBits = other.toBitmap();
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                bits[i] &= otherBits[i];
+            }
+            return fromBitmap(bits);
+        }
+
+        Container or(Container other) {
+            long[] bits = toBitmap();
+            long[] otherBits = other.toBitmap();
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                bits[i] |= otherBits[i];
+            }
+            return fromBitmap(bits);
+        }
+
+        Container andNot(Container other) {
+            long[] bits = toBitmap();
+            long[] otherBits = other.toBitmap();
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                bits[i] &= ~otherBits[i];
+            }
+            return fromBitmap(bits);
+        }
+
+        // Picks the smaller in-memory form for the given bits
+        static Container fromBitmap(long[] bits) {
+            int cardinality = 0;
+            for (long word : bits) {
+                cardinality += Long.bitCount(word);
+            }
+            if (cardinality > MAX_ARRAY_SIZE) {
+                return new BitmapContainer(bits, cardinality);
+            }
+            char[] values = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                for (long word = bits[i]; word != 0; word &= word - 1) {
+                    values[count++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                }
+            }
+            return new ArrayContainer(values, cardinality);
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            int runCount = runCount();
+            if (runCount * 4 < Math.min(cardinality() * 2, BITMAP_WORDS * 8)) {
+                // Pairs of (start, length - 1) for each run of consecutive values
+                out.writeByte(RUNS);
+                out.writeChar(runCount);
+                writeRuns(out);
+            } else {
+                writeValues(out);
+            }
+        }
+
+        // Number of runs of consecutive values
+        abstract int runCount();
+
+        abstract void writeRuns(DataOutput out) throws IOException;
+
+        // Writes the type byte and the values in this container's own form
+        abstract void writeValues(DataOutput out) throws IOException;
+
+        static Container readFrom(DataInput in) throws IOException {
+            byte type = in.readByte();
+            if (type == BITMAP) {
+                long[] bits = new long[BITMAP_WORDS];
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    bits[i] = in.readLong();
+                }
+                return fromBitmap(bits);
+            }
+            if (type == ARRAY) {
+                int cardinality = in.readChar();
+                if (cardinality > MAX_ARRAY_SIZE) {
+                    throw new IOException("Array container of " + cardinality + " values");
+                }
+                char[] values = new char[cardinality];
+                for (int i = 0; i < cardinality; i++) {
+                    values[i] = in.readChar();
+                    if (i > 0 && values[i] <= values[i - 1]) {
+                        throw new IOException("Array container values not in ascending order");
+                    }
+                }
+                return new ArrayContainer(values, cardinality);
+            }
+            if (type == RUNS) {
+                long[] bits = new long[BITMAP_WORDS];
+                int runCount = in.readChar();
+                int previousEnd = -1;
+                for (int i = 0; i < runCount; i++) {
+                    int start = in.readChar();
+                    int end = start + in.readChar();
+                    if (start <= previousEnd || end > Character.MAX_VALUE) {
+                        throw new IOException("Runs overlap, are out of order or end beyond the container");
+                    }
+                    for (int value = start; value <= end; value++) {
+                        bits[value >>> 6] |= 1L << value;
+                    }
+                    previousEnd = end;
+                }
+                return fromBitmap(bits);
+            }
+            throw new IOException("Unknown container type " + type);
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        Container add(char low) {
+            // Ascending input appends without a search
+            int index = cardinality > 0 && values[cardinality - 1] < low
+                    ? -cardinality - 1 : Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == MAX_ARRAY_SIZE) {
+                long[] bits = toBitmap();
+                bits[low >>> 6] |= 1L << low;
+                return new BitmapContainer(bits, cardinality + 1);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(MAX_ARRAY_SIZE, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        void forEach(long base, LongConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(base | values[i]);
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        @Override
+        long[] toBitmap() {
+            long[] bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            return bits;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (!(other instanceof ArrayContainer)) {
+                return filter(other, true);
+            }
+            ArrayContainer o = (ArrayContainer) other;
+            char[] result = new char[Math.min(cardinality, o.cardinality)];
+            int count = 0;
+            for (int i = 0, j = 0; i < cardinality && j < o.cardinality; ) {
+                if (values[i] == o.values[j]) {
+                    result[count++] = values[i++];
+                    j++;
+                } else if (values[i] < o.values[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            return filter(other, false);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (!(other instanceof ArrayContainer) || cardinality + other.cardinality() > MAX_ARRAY_SIZE) {
+                return super.or(other);
+            }
+            ArrayContainer o = (ArrayContainer) other;
+            char[] result = new char[cardinality + o.cardinality];
+            int count = 0, i = 0, j = 0;
+            while (i < cardinality || j < o.cardinality) {
+                if (j == o.cardinality || (i < cardinality && values[i] < o.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i == cardinality || o.values[j] < values[i]) {
+                    result[count++] = o.values[j++];
+                } else {
+                    result[count++] = values[i++];
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        int runCount() {
+            int runs = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (i == 0 || values[i] != values[i - 1] + 1) {
+                    runs++;
+                }
+            }
+            return runs;
+        }
+
+        @Override
+        void writeRuns(DataOutput out) throws IOException {
+            for (int start = 0, end; start < cardinality; start = end) {
+                end = start + 1;
+                while (end < cardinality && values[end] == values[end - 1] + 1) {
+                    end++;
+                }
+                out.writeChar(values[start]);
+                out.writeChar(values[end - 1] - values[start]);
+            }
+        }
+
+        @Override
+        void writeValues(DataOutput out) throws IOException {
+            out.writeByte(ARRAY);
+            out.writeChar(cardinality);
+            for (int i = 0; i < cardinality; i++) {
+                out.writeChar(values[i]);
+            }
+        }
+
+        // Keeps the values that are (or are not) in the other container
+        private Container filter(Container other, boolean keepContained) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i]) == keepContained) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] bits;
+        private int cardinality;
+
+        BitmapContainer(long[] bits, int cardinality) {
+            this.bits = bits;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container add(char low) {
+            long before = bits[low >>> 6];
+            bits[low >>> 6] = before | (1L << low);
+            if (bits[low >>> 6] != before) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        void forEach(long base, LongConsumer action) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                for (long word = bits[i]; word != 0; word &= word - 1) {
+                    action.accept(base | ((i << 6) + Long.numberOfTrailingZeros(word)));
+                }
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(bits.clone(), cardinality);
+        }
+
+        @Override
+        long[] toBitmap() {
+            return bits.clone();
+        }
+
+        @Override
+        Container and(Container other) {
+            return other instanceof ArrayContainer ? other.and(this) : super.and(other);
+        }
+
+        @Override
+        int runCount() {
+            int runs = 0;
+            long previousTopBit = 0;
+            for (long word : bits) {
+                // A run starts at every set bit whose lower neighbour is clear
+                runs += Long.bitCount(word & ~(word << 1 | previousTopBit));
+                previousTopBit = word >>> 63;
+            }
+            return runs;
+        }
+
+        @Override
+        void writeRuns(DataOutput out) throws IOException {
+            for (int start = nextSetBit(0); start >= 0; ) {
+                int end = nextClearBit(start);
+                out.writeChar(start);
+                out.writeChar(end - 1 - start);
+                start = end < BITMAP_WORDS * 64 ? nextSetBit(end) : -1;
+            }
+        }
+
+        @Override
+        void writeValues(DataOutput out) throws IOException {
+            out.writeByte(BITMAP);
+            for (long word : bits) {
+                out.writeLong(word);
+            }
+        }
+
+        // First set bit at or after from, or -1
+        private int nextSetBit(int from) {
+            int i = from >>> 6;
+            long word = bits[i] & (-1L << from);
+            while (word == 0) {
+                if (++i == BITMAP_WORDS) {
+                    return -1;
+                }
+                word = bits[i];
+            }
+            return (i << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        // First clear bit at or after from, or 65536 if there is none
+        private int nextClearBit(int from) {
+            int i = from >>> 6;
+            long word = ~bits[i] & (-1L << from);
+            while (word == 0) {
+                if (++i == BITMAP_WORDS) {
+                    return BITMAP_WORDS * 64;
+                }
+                word = ~bits[i];
+            }
+            return (i << 6) + Long.numberOfTrailingZeros(word);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuditRecordIdSetTest {
+
+    private static final int HEADER = 4 + 4;
+    private static final int CONTAINER_HEADER = 8 + 1;
+
+    @Test
+    void extremeIds_keepTheirSignAndOrder() throws IOException {
+        AuditRecordIdSet set = AuditRecordIdSet.of(Long.MAX_VALUE, 0, -1, Long.MIN_VALUE, 65_535, 65_536);
+        assertArrayEquals(new long[] {Long.MIN_VALUE, -1, 0, 65_535, 65_536, Long.MAX_VALUE}, set.toArray());
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertFalse(set.contains(Long.MIN_VALUE + 1));
+        assertEquals(set, roundTrip(set));
+    }
+
+    @Test
+    void arrayContainer_becomesABitmapAfter4096Values() {
+        AuditRecordIdSet set = new AuditRecordIdSet();
+        for (long id = 0; id < 8192; id += 2) {
+            set.add(id);
+        }
+        assertFalse(set.add(4096));
+        assertTrue(set.add(1)); // Value 4097 of the container
+        assertEquals(4097, set.cardinality());
+        assertTrue(set.contains(1));
+        assertFalse(set.contains(3));
+        assertArrayEquals(new long[] {0, 2, 4}, set.and(AuditRecordIdSet.of(0, 2, 3, 4)).toArray());
+        assertEquals(4096, set.andNot(AuditRecordIdSet.of(0, 3)).cardinality());
+    }
+
+    @Test
+    void writeTo_picksTheSmallestForm() throws IOException {
+        // One value: stored as an array, without a bitmap
+        assertEquals(HEADER + CONTAINER_HEADER + 2 + 2, bytes(AuditRecordIdSet.of(42)).length);
+        // A whole container of consecutive IDs is one run, ending on the last bit of the bitmap
+        AuditRecordIdSet full = AuditRecordIdSet.of(LongStream.range(65_536, 131_072).toArray());
+        assertEquals(HEADER + CONTAINER_HEADER + 2 + 4, bytes(full).length);
+        assertEquals(full, roundTrip(full));
+        // Runs across word boundaries of a bitmap container
+        AuditRecordIdSet runs = AuditRecordIdSet.of(LongStream.concat(LongStream.range(63, 3_000),
+                LongStream.range(3_001, 6_000)).toArray());
+        assertEquals(HEADER + CONTAINER_HEADER + 2 + 2 * 4, bytes(runs).length);
+        assertEquals(runs, roundTrip(runs));
+        // Every other ID: no runs to speak of, so a bitmap
+        AuditRecordIdSet alternating = AuditRecordIdSet.of(LongStream.range(0, 20_000).map(id -> id * 2).toArray());
+        assertEquals(HEADER + CONTAINER_HEADER + 8192, bytes(alternating).length);
+        assertEquals(alternating, roundTrip(alternating));
+        assertEquals(new AuditRecordIdSet(), roundTrip(new AuditRecordIdSet()));
+    }
+
+    @Test
+    void readFrom_rejectsCorruptInput() {
+        assertThrows(IOException.class, () -> read(new byte[] {'A', 'R', 'I', 'X', 0, 0, 0, 0}));
+        assertCorrupt(out -> out.writeInt(-1));
+        // Highs not ascending
+        assertCorrupt(out -> {
+            out.writeInt(2);
+            container(out, 5, 1);
+            container(out, 5, 2);
+        });
+        // Unsorted array, and more values than an array container holds
+        assertCorrupt(out -> {
+            out.writeInt(1);
+            out.writeLong(0);
+            out.writeByte(0);
+            out.writeChar(2);
+            out.writeChar(9);
+            out.writeChar(3);
+        });
+        assertCorrupt(out -> {
+            out.writeInt(1);
+            out.writeLong(0);
+            out.writeByte(0);
+            out.writeChar(4097);
+        });
+        // Overlapping runs, and a run past the end of the container
+        assertCorrupt(out -> {
+            out.writeInt(1);
+            out.writeLong(0);
+            out.writeByte(2);
+            out.writeChar(2);
+            out.writeChar(10);
+            out.writeChar(5);
+            out.writeChar(12);
+            out.writeChar(0);
+        });
+        assertCorrupt(out -> {
+            out.writeInt(1);
+            out.writeLong(0);
+            out.writeByte(2);
+            out.writeChar(1);
+            out.writeChar(65_000);
+            out.writeChar(1_000);
+        });
+        // Empty container, high part out of range and unknown container type
+        assertCorrupt(out -> {
+            out.writeInt(1);
+            out.writeLong(0);
+            out.writeByte(0);
+            out.writeChar(0);
+        });
+        assertCorrupt(out -> {
+            out.writeInt(1);
+            container(out, Long.MAX_VALUE, 1);
+        });
+        assertCorrupt(out -> {
+            out.writeInt(1);
+            out.writeLong(0);
+            out.writeByte(7);
+        });
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // A single-value array container
+    private static void container(DataOutputStream out, long high, int low) throws IOException {
+        out.writeLong(high);
+        out.writeByte(0);
+        out.writeChar(1);
+        out.writeChar(low);
+    }
+
+    private static void assertCorrupt(Writer body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0x41524953);
+            body.write(out);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        assertThrows(IOException.class, () -> read(bytes.toByteArray()));
+    }
+
+    private static byte[] bytes(AuditRecordIdSet set) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        set.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static AuditRecordIdSet roundTrip(AuditRecordIdSet set) throws IOException {
+        return read(bytes(set));
+    }
+
+    private static AuditRecordIdSet read(byte[] bytes) throws IOException {
+        return AuditRecordIdSet.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.api;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Caches an OAuth access token together with its expiry and keeps it fresh.
+ * A background scheduler refreshes the token shortly before it expires, so callers
+ * only ever read a volatile field. If several threads see an expiring token at once,
+ * only one refresh runs and the others reuse its result.
+ * Callers block on the token endpoint only when no usable token exists yet
+ * (first call, or after a failed refresh let the token run out).
+ * Refreshes start at least {@link #MIN_REFRESH_INTERVAL} apart, so short-lived tokens or a
+ * failing endpoint never make the holder call the token endpoint at request rate.
+ */
+public class AccessTokenHolder implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessTokenHolder.class);
+
+    // Retry delay used when a scheduled background refresh fails
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    /**
+     * Minimum time between the starts of two refreshes; a refresh requested earlier is delayed.
+     */
+    public static final Duration MIN_REFRESH_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * Fetches a fresh token from the token endpoint.
+     */
+    @FunctionalInterface
+    public interface TokenFetcher {
+        Token fetch() throws Exception;
+    }
+
+    /**
+     * Immutable token value together with the instant it stops being valid.
+     * Its lifetime is counted from construction, i.e. right after the token response arrived.
+     */
+    public static final class Token {
+        private final String value;
+        private final Instant issuedAt;
+        private final Instant expiresAt;
+
+        /**
+         * @throws IllegalArgumentException If the token is already expired.
+         */
+        public Token(String value, Instant expiresAt) {
+            this.value = value;
+            this.issuedAt = Instant.now();
+            this.expiresAt = expiresAt;
+            if (!issuedAt.isBefore(expiresAt)) {
+                throw new IllegalArgumentException("Access token expires at " + expiresAt + ", before it was issued");
+            }
+        }
+
+        public String getValue() { return value; }
+        public Instant getExpiresAt() { return expiresAt; }
+
+        boolean isExpired(Instant now) {
+            return !now.isBefore(expiresAt);
+        }
+
+        // The skew, clamped to half the lifetime so that a short-lived token is still used for a while
+        Instant refreshAt(Duration skew) {
+            Duration halfLifetime = Duration.between(issuedAt, expiresAt).dividedBy(2);
+            return expiresAt.minus(skew.compareTo(halfLifetime) > 0 ? halfLifetime : skew);
+        }
+    }
+
+    private final TokenFetcher fetcher;
+    private final Duration refreshSkew;
+    private final ScheduledExecutorService scheduler;
+    private final Executor fetchExecutor;
+    private final boolean ownsScheduler;
+
+    private volatile Token current;
+    private final AtomicReference<CompletableFuture<Token>> inFlight = new AtomicReference<>();
+    private volatile long lastRefreshStartNanos = System.nanoTime() - MIN_REFRESH_INTERVAL.toNanos();
+    private volatile ScheduledFuture<?> scheduledRefresh;
+    private volatile boolean closed;
+
+    /**
+     * @param fetcher     Performs the actual token request.
+     * @param refreshSkew How long before expiry the token is refreshed in the background.
+     * @param threadName  Name of the daemon thread running scheduled refreshes.
+     */
+    public AccessTokenHolder(TokenFetcher fetcher, Duration refreshSkew, String threadName) {
+        this(fetcher, refreshSkew, Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        }), null, true);
+    }
+
+    /**
+     * Creates a holder whose refresh timers run on a scheduler shared with other holders,
+     * e.g. one per institution. The token requests themselves run on {@code fetchExecutor}, so
+     * a slow token endpoint never holds up the timers of the other holders. Neither executor is
+     * shut down by {@link #close()}.
+     */
+    public AccessTokenHolder(TokenFetcher fetcher, Duration refreshSkew, ScheduledExecutorService sharedScheduler,
+                             Executor fetchExecutor) {
+        this(fetcher, refreshSkew, sharedScheduler, fetchExecutor, false);
+    }
+
+    private AccessTokenHolder(TokenFetcher fetcher, Duration refreshSkew, ScheduledExecutorService scheduler,
+                              Executor fetchExecutor, boolean ownsScheduler) {
+        this.fetcher = fetcher;
+        this.refreshSkew = refreshSkew;
+        this.scheduler = scheduler;
+        // A holder with its own scheduler fetches on its own thread
+        this.fetchExecutor = fetchExecutor != null ? fetchExecutor : scheduler;
+        this.ownsScheduler = ownsScheduler;
+    }
+
+    /**
+     * Returns a valid token. A cached token is returned without blocking; when it is inside
+     * the refresh window a background refresh is triggered. Only when there is no valid token
+     * does the caller wait for the (shared) refresh to complete.
+     */
+    public String getToken() throws Exception {
+        Token token = validToken();
+        if (token != null) {
+            return token.getValue();
+        }
+        try {
+            return refreshAsync().join().getValue();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #getToken()}. Returns an already completed future when a
+     * valid token is cached, otherwise the future of the shared refresh.
+     */
+    public CompletableFuture<String> getTokenAsync() {
+        Token token = validToken();
+        if (token != null) {
+            return CompletableFuture.completedFuture(token.getValue());
+        }
+        return refreshAsync().thenApply(Token::getValue);
+    }
+
+    // Returns the cached token if still valid, triggering a background refresh inside the refresh window
+    private Token validToken() {
+        Token token = current;
+        Instant now = Instant.now();
+        if (token == null || token.isExpired(now)) {
+            return null;
+        }
+        if (!now.isBefore(token.refreshAt(refreshSkew))) {
+            refreshAsync();
+        }
+        return token;
+    }
+
+    /**
+     * Starts a refresh unless one is already running, and returns the future of the running refresh.
+     * The refresh is delayed until {@link #MIN_REFRESH_INTERVAL} after the start of the previous one.
+     */
+    public CompletableFuture<Token> refreshAsync() {
+        while (true) {
+            CompletableFuture<Token> existing = inFlight.get();
+            if (existing != null) {
+                return existing;
+            }
+            CompletableFuture<Token> mine = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, mine)) {
+                long wait = lastRefreshStartNanos + MIN_REFRESH_INTERVAL.toNanos() - System.nanoTime();
+                try {
+                    if (wait <= 0) {
+                        startRefresh(mine);
+                    } else {
+                        scheduler.schedule(() -> startRefresh(mine), wait, TimeUnit.NANOSECONDS);
+                    }
+                } catch (RuntimeException e) {
+                    // Scheduler shut down by close()
+                    inFlight.compareAndSet(mine, null);
+                    mine.completeExceptionally(e);
+                }
+                return mine;
+            }
+        }
+    }
+
+    /**
+     * Drops the cached token if it is still {@code rejectedToken}, e.g. after the gateway answered
+     * 401 for it, so the next {@link #getToken()} waits for a new one. A token that was already
+     * replaced is kept, so threads reporting the same rejection do not discard each other's refresh.
+     */
+    public void invalidate(String rejectedToken) {
+        Token token = current;
+        if (token != null && token.getValue().equals(rejectedToken)) {
+            current = null;
+        }
+    }
+
+    // Hands the token request to the fetch executor; the scheduler thread only fires the timer
+    private void startRefresh(CompletableFuture<Token> future) {
+        try {
+            fetchExecutor.execute(() -> runRefresh(future));
+        } catch (RuntimeException e) {
+            // Fetch executor shut down
+            inFlight.compareAndSet(future, null);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void runRefresh(CompletableFuture<Token> future) {
+        lastRefreshStartNanos = System.nanoTime();
+        try {
+            Token token = fetcher.fetch();
+            current = token;
+            scheduleNextRefresh(token);
+            future.complete(token);
+        } catch (Throwable t) {
+            logger.error("Access token refresh failed: {}", t.getMessage());
+            if (current != null && !current.isExpired(Instant.now())) {
+                scheduleRefreshIn(RETRY_DELAY);
+            }
+            future.completeExceptionally(t);
+        } finally {
+            inFlight.compareAndSet(future, null);
+        }
+    }
+
+    private void scheduleNextRefresh(Token token) {
+        Duration delay = Duration.between(Instant.now(), token.refreshAt(refreshSkew));
+        scheduleRefreshIn(delay.isNegative() ? Duration.ZERO : delay);
+        logger.debug("Next access token refresh in {}s", delay.getSeconds());
+    }
+
+    private void scheduleRefreshIn(Duration delay) {
+        ScheduledFuture<?> previous = scheduledRefresh;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        if (!closed && !scheduler.isShutdown()) {
+            scheduledRefresh = scheduler.schedule(this::refreshAsync, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static Exception unwrap(CompletionException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (ownsScheduler) {
+            scheduler.shutdownNow();
+        } else {
+            ScheduledFuture<?> pending = scheduledRefresh;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.api;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consecutive-failure circuit breaker.
+ * After failureThreshold failures in a row the breaker opens and rejects calls for openDuration.
+ * It then lets a single trial call through (half-open): success closes it, failure reopens it.
+ * A threshold of 0 disables the breaker.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong(-1);
+    private final AtomicBoolean trialInProgress = new AtomicBoolean();
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Returns true if a call may proceed. Callers that got true must report the outcome.
+     */
+    public boolean tryAcquire() {
+        long opened = openedAt.get();
+        if (failureThreshold <= 0 || opened < 0) {
+            return true;
+        }
+        if (System.nanoTime() - opened < openNanos) {
+            return false;
+        }
+        // Open period is over: allow exactly one trial call
+        return trialInProgress.compareAndSet(false, true);
+    }
+
+    /**
+     * Reports that a call allowed by {@link #tryAcquire()} was not made after all, so it counts as
+     * neither success nor failure. Frees the half-open trial, if the call held it, for the next caller.
+     */
+    public void release() {
+        if (openedAt.get() >= 0) {
+            trialInProgress.set(false);
+        }
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        openedAt.set(-1);
+        trialInProgress.set(false);
+    }
+
+    public void onFailure() {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        if (trialInProgress.get() || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt.set(System.nanoTime());
+            trialInProgress.set(false);
+        }
+    }
+
+    public State getState() {
+        long opened = openedAt.get();
+        if (opened < 0) {
+            return State.CLOSED;
+        }
+        return System.nanoTime() - opened < openNanos ? State.OPEN : State.HALF_OPEN;
+    }
+
+    /**
+     * Thrown instead of sending a request while the breaker is open.
+     */
+    public static class OpenException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public OpenException() {
+            super("Circuit breaker is open, request not sent");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.api;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Instrumentation hooks of {@link SwiftApiGatewayService}. Register a bean implementing this
+ * interface to choose where the numbers go: {@link MicrometerGatewayMetrics} for a Micrometer
+ * registry, or {@link InMemoryGatewayMetrics} (the default) for in-process snapshots.
+ * Implementations are called on the request path and must be cheap and thread-safe.
+ */
+public interface GatewayMetrics {
+
+    /** Records a token endpoint round trip, including JWT signing. */
+    void recordTokenFetch(long nanos, boolean success);
+
+    /** Records the time spent building and signing the JWT assertion. */
+    void recordJwtSigning(long nanos);
+
+    /**
+     * Records a payment order request.
+     * @param status HTTP status of the response, or 0 if no response was received.
+     */
+    void recordPaymentOrder(long nanos, int status);
+
+    /** Counts an error, keyed by a short type such as the exception's simple class name. */
+    void recordError(String type);
+
+    /**
+     * Counts a tail-latency control event: hedge.sent, hedge.won, retry or circuit.rejected.
+     */
+    void recordResilienceEvent(String event);
+
+    /** Registers the source of the current in-flight request count. */
+    void registerInFlightGauge(IntSupplier inFlight);
+
+    /**
+     * Implementation discarding everything.
+     */
+    GatewayMetrics NOOP = new GatewayMetrics() {
+        @Override public void recordTokenFetch(long nanos, boolean success) { }
+        @Override public void recordJwtSigning(long nanos) { }
+        @Override public void recordPaymentOrder(long nanos, int status) { }
+        @Override public void recordError(String type) { }
+        @Override public void recordResilienceEvent(String event) { }
+        @Override public void registerInFlightGauge(IntSupplier inFlight) { }
+    };
+}
@@ -0,0 +1,90 @@
+package com.example.api;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Caps the number of concurrently running asynchronous requests without blocking threads.
+ * {@link #acquire()} returns a future that completes once a permit is available; callers
+ * chain their work on it and must call {@link #release()} exactly once when done.
+ */
+public class InFlightLimiter {
+
+    private static final CompletableFuture<Void> GRANTED = CompletableFuture.completedFuture(null);
+
+    // Hand-offs made by release() calls nested in a waiter's continuation, completed by the outermost call
+    private static final ThreadLocal<Deque<CompletableFuture<Void>>> PENDING_HANDOFFS = new ThreadLocal<>();
+
+    private final int maxInFlight;
+    private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int inFlight;
+
+    public InFlightLimiter(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1, was " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Requests a permit. The returned future is already complete when a permit is free,
+     * otherwise it completes (on the releasing thread) when one is handed over.
+     */
+    public CompletableFuture<Void> acquire() {
+        synchronized (this) {
+            if (inFlight < maxInFlight) {
+                inFlight++;
+                return GRANTED;
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            return waiter;
+        }
+    }
+
+    /**
+     * Returns a permit, handing it directly to the oldest waiter if there is one.
+     * The waiter's continuation runs on this thread; if it releases again, e.g. because its
+     * request failed at once, that hand-off is queued and completed by a loop here instead of
+     * recursing, so a long queue of failing requests cannot overflow the stack.
+     */
+    public void release() {
+        CompletableFuture<Void> next;
+        synchronized (this) {
+            next = waiters.poll();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        // Permit is transferred as-is, so inFlight stays unchanged. Complete outside the lock.
+        Deque<CompletableFuture<Void>> pending = PENDING_HANDOFFS.get();
+        if (pending != null) {
+            pending.add(next);
+            return;
+        }
+        pending = new ArrayDeque<>();
+        PENDING_HANDOFFS.set(pending);
+        try {
+            for (; next != null; next = pending.poll()) {
+                next.complete(null);
+            }
+        } finally {
+            PENDING_HANDOFFS.remove();
+        }
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+}
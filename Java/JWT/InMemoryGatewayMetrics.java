@@ -0,0 +1,122 @@
+package com.example.api;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * {@link GatewayMetrics} kept in memory in {@link LatencyHistogram}s.
+ * Use {@link #snapshot()} to read percentiles, e.g. to compare p99 across test runs.
+ */
+public class InMemoryGatewayMetrics implements GatewayMetrics {
+
+    private final LatencyHistogram tokenFetches = new LatencyHistogram();
+    private final LongAdder tokenFetchFailures = new LongAdder();
+    private final LatencyHistogram jwtSigning = new LatencyHistogram();
+    private final Map<Integer, LatencyHistogram> paymentOrdersByStatus = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> resilienceEvents = new ConcurrentHashMap<>();
+    private volatile IntSupplier inFlight = () -> 0;
+
+    @Override
+    public void recordTokenFetch(long nanos, boolean success) {
+        tokenFetches.record(nanos);
+        if (!success) {
+            tokenFetchFailures.increment();
+        }
+    }
+
+    @Override
+    public void recordJwtSigning(long nanos) {
+        jwtSigning.record(nanos);
+    }
+
+    @Override
+    public void recordPaymentOrder(long nanos, int status) {
+        paymentOrdersByStatus.computeIfAbsent(status, s -> new LatencyHistogram()).record(nanos);
+    }
+
+    @Override
+    public void recordError(String type) {
+        errors.computeIfAbsent(type, t -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void recordResilienceEvent(String event) {
+        resilienceEvents.computeIfAbsent(event, e -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void registerInFlightGauge(IntSupplier inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public Snapshot snapshot() {
+        Map<Integer, LatencyHistogram.Snapshot> byStatus = new TreeMap<>();
+        paymentOrdersByStatus.forEach((status, histogram) -> byStatus.put(status, histogram.snapshot()));
+        Map<String, Long> errorCounts = new TreeMap<>();
+        errors.forEach((type, count) -> errorCounts.put(type, count.sum()));
+        Map<String, Long> eventCounts = new TreeMap<>();
+        resilienceEvents.forEach((event, count) -> eventCounts.put(event, count.sum()));
+        return new Snapshot(tokenFetches.snapshot(), tokenFetchFailures.sum(), jwtSigning.snapshot(),
+                byStatus, errorCounts, eventCounts, inFlight.getAsInt());
+    }
+
+    public void reset() {
+        tokenFetches.reset();
+        tokenFetchFailures.reset();
+        jwtSigning.reset();
+        paymentOrdersByStatus.clear();
+        errors.clear();
+        resilienceEvents.clear();
+    }
+
+    /**
+     * Point-in-time copy of all gateway metrics. Latencies are in nanoseconds.
+     */
+    public static final class Snapshot {
+        private final LatencyHistogram.Snapshot tokenFetches;
+        private final long tokenFetchFailures;
+        private final LatencyHistogram.Snapshot jwtSigning;
+        private final Map<Integer, LatencyHistogram.Snapshot> paymentOrdersByStatus;
+        private final Map<String, Long> errors;
+        private final Map<String, Long> resilienceEvents;
+        private final int inFlight;
+
+        private Snapshot(LatencyHistogram.Snapshot tokenFetches, long tokenFetchFailures,
+                         LatencyHistogram.Snapshot jwtSigning, Map<Integer, LatencyHistogram.Snapshot> paymentOrdersByStatus,
+                         Map<String, Long> errors, Map<String, Long> resilienceEvents, int inFlight) {
+            this.tokenFetches = tokenFetches;
+            this.tokenFetchFailures = tokenFetchFailures;
+            this.jwtSigning = jwtSigning;
+            this.paymentOrdersByStatus = Collections.unmodifiableMap(paymentOrdersByStatus);
+            this.errors = Collections.unmodifiableMap(errors);
+            this.resilienceEvents = Collections.unmodifiableMap(resilienceEvents);
+            this.inFlight = inFlight;
+        }
+
+        public LatencyHistogram.Snapshot getTokenFetches() { return tokenFetches; }
+        public long getTokenFetchFailures() { return tokenFetchFailures; }
+        public LatencyHistogram.Snapshot getJwtSigning() { return jwtSigning; }
+        /** Payment order latencies keyed by HTTP status (0 = no response). */
+        public Map<Integer, LatencyHistogram.Snapshot> getPaymentOrdersByStatus() { return paymentOrdersByStatus; }
+        public Map<String, Long> getErrors() { return errors; }
+        /** Hedge, retry and circuit breaker event counts. */
+        public Map<String, Long> getResilienceEvents() { return resilienceEvents; }
+        public int getInFlight() { return inFlight; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("token fetch: ").append(tokenFetches).append(", failures=").append(tokenFetchFailures).append('\n');
+            sb.append("jwt signing: ").append(jwtSigning).append('\n');
+            paymentOrdersByStatus.forEach((status, s) -> sb.append("payment order [").append(status).append("]: ").append(s).append('\n'));
+            sb.append("errors: ").append(errors).append(", resilience: ").append(resilienceEvents)
+                    .append(", in flight: ").append(inFlight);
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.api;
+
+/**
+ * Credentials of one institution (BIC) for {@link SwiftApiGatewayService#registerInstitution}.
+ */
+public final class InstitutionCredentials {
+
+    private final String institution;
+    private final String consumerKey;
+    private final String consumerSecret;
+    private final String p12File;
+    private final String p12Password;
+    private final String scope;
+
+    /**
+     * @param institution    Value sent in the Institution header, e.g. the BIC8.
+     * @param consumerKey    Consumer key of the institution's API application.
+     * @param consumerSecret Consumer secret of the institution's API application.
+     * @param p12File        Path to the PKCS12 file holding the institution's signing key and certificate.
+     * @param p12Password    Password of the PKCS12 file.
+     * @param scope          OAuth scope requested for the institution's tokens.
+     */
+    public InstitutionCredentials(String institution, String consumerKey, String consumerSecret,
+                                  String p12File, String p12Password, String scope) {
+        this.institution = institution;
+        this.consumerKey = consumerKey;
+        this.consumerSecret = consumerSecret;
+        this.p12File = p12File;
+        this.p12Password = p12Password;
+        this.scope = scope;
+    }
+
+    public String getInstitution() { return institution; }
+    public String getConsumerKey() { return consumerKey; }
+    public String getConsumerSecret() { return consumerSecret; }
+    public String getP12File() { return p12File; }
+    public String getP12Password() { return p12Password; }
+    public String getScope() { return scope; }
+}
@@ -0,0 +1,229 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serializes request bodies with a pre-configured {@link ObjectWriter} straight into pooled byte
+ * buffers, so no intermediate JSON String or byte[] copy is created per request.
+ * The buffer backing a {@link Body} is handed to the HttpClient as a read-only {@link ByteBuffer}
+ * view, without copying, so it may only be reused once no exchange can read it anymore:
+ * {@link Body#close()} returns it to the pool only if at most one exchange read it and that
+ * exchange got a response. A body sent more than once, by hedging, retries or redirects, or whose
+ * exchange failed or was cancelled, is left to the garbage collector instead, since a cancelled
+ * exchange may still be writing it.
+ */
+public class JsonBodyPool {
+
+    private static final int INITIAL_BUFFER_SIZE = 2 * 1024;
+
+    private final ObjectWriter writer;
+    private final int maxPooled;
+    private final int maxRetainedBytes;
+    private final ConcurrentLinkedQueue<Buffer> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * @param writer           Writer used for all bodies, typically {@code objectMapper.writerFor(type)}.
+     * @param maxPooled        Maximum number of idle buffers kept for reuse.
+     * @param maxRetainedBytes Buffers that grew beyond this size are dropped instead of pooled.
+     */
+    public JsonBodyPool(ObjectWriter writer, int maxPooled, int maxRetainedBytes) {
+        this.writer = writer;
+        this.maxPooled = maxPooled;
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    /**
+     * Serializes the value into a pooled buffer.
+     */
+    public Body write(Object value) throws IOException {
+        Buffer buffer = pool.poll();
+        if (buffer == null) {
+            buffer = new Buffer();
+        } else {
+            pooled.decrementAndGet();
+        }
+        try {
+            writer.writeValue(buffer, value);
+        } catch (IOException | RuntimeException e) {
+            release(buffer);
+            throw e;
+        }
+        return new Body(buffer);
+    }
+
+    private void release(Buffer buffer) {
+        if (buffer.bytes.length > maxRetainedBytes) {
+            return;
+        }
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            return;
+        }
+        buffer.count = 0;
+        pool.offer(buffer);
+    }
+
+    /**
+     * Serialized request body backed by a pooled buffer.
+     */
+    public final class Body implements AutoCloseable {
+        private static final int RELEASED = -1;
+
+        private Buffer buffer;
+        // Exchanges that subscribed to the publisher, or RELEASED once the buffer is back in the pool
+        private final AtomicInteger subscriptions = new AtomicInteger();
+        private volatile boolean responseReceived;
+
+        private Body(Buffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Publisher reading directly from the pooled buffer (no copy). It can be subscribed any
+         * number of times, e.g. by hedged or retried exchanges, until the buffer is returned to the pool.
+         */
+        public HttpRequest.BodyPublisher publisher() {
+            return new Publisher(buffer.bytes, buffer.count);
+        }
+
+        /**
+         * Records that the exchange sending this body got a response, so the client is done
+         * reading it. Without this, {@link #close()} does not return the buffer to the pool.
+         */
+        public void responseReceived() {
+            responseReceived = true;
+        }
+
+        public int length() {
+            return buffer.count;
+        }
+
+        /**
+         * Decodes the body for logging. Only call this behind a log-level check.
+         */
+        @Override
+        public String toString() {
+            return new String(buffer.bytes, 0, buffer.count, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Returns the buffer to the pool if no exchange can still read it (see the class comment),
+         * otherwise drops it. Safe to call more than once.
+         */
+        @Override
+        public void close() {
+            Buffer b = buffer;
+            if (b == null) {
+                return;
+            }
+            buffer = null;
+            int n = subscriptions.get();
+            if ((n == 0 || n == 1 && responseReceived) && subscriptions.compareAndSet(n, RELEASED)) {
+                release(b);
+            }
+        }
+
+        // Publishes one read-only view of the serialized bytes per subscription
+        private final class Publisher implements HttpRequest.BodyPublisher {
+            private final byte[] bytes;
+            private final int count;
+
+            private Publisher(byte[] bytes, int count) {
+                this.bytes = bytes;
+                this.count = count;
+            }
+
+            @Override
+            public long contentLength() {
+                return count;
+            }
+
+            @Override
+            public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+                int n;
+                do {
+                    n = subscriptions.get();
+                    if (n == RELEASED) {
+                        // A late exchange, e.g. a hedge that already lost: the bytes may belong to another body now
+                        subscriber.onSubscribe(new Subscription(subscriber, null));
+                        subscriber.onError(new IllegalStateException("Request body already released"));
+                        return;
+                    }
+                } while (!subscriptions.compareAndSet(n, n + 1));
+                subscriber.onSubscribe(new Subscription(subscriber, ByteBuffer.wrap(bytes, 0, count).asReadOnlyBuffer()));
+            }
+        }
+    }
+
+    // Delivers the whole body as one buffer on the first request, then completes
+    private static final class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final ByteBuffer content;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Subscription(Flow.Subscriber<? super ByteBuffer> subscriber, ByteBuffer content) {
+            this.subscriber = subscriber;
+            this.content = content;
+            if (content == null) {
+                done.set(true);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            if (n <= 0) {
+                subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+                return;
+            }
+            if (content.hasRemaining()) {
+                subscriber.onNext(content);
+            }
+            subscriber.onComplete();
+        }
+
+        @Override
+        public void cancel() {
+            done.set(true);
+        }
+    }
+
+    // Unsynchronized growable byte sink exposing its backing array
+    private static final class Buffer extends OutputStream {
+        private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+        private int count;
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, bytes, count, len);
+            count += len;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length << 1));
+            }
+        }
+    }
+}
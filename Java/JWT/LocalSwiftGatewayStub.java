@@ -0,0 +1,332 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for the Swift API gateway, for reproducible offline load tests of
+ * {@link SwiftApiGatewayService}. Point swift.baseUrl at {@link #getBaseUrl()}.
+ *
+ * Endpoints:
+ * - POST /oauth2/v1/token: checks Basic auth, then verifies the JWT assertion's RS256 signature
+ *   against the certificate in its x5c header, plus aud and exp, and issues a bearer token
+ * - POST /api/v1/payment-order: requires a valid bearer token and answers 201 with a JSON body
+ *
+ * Latency, error rate, token lifetime and a 429 throttling rate are configurable through {@link Builder}.
+ * Delayed responses are sent from a scheduler, so slow responses do not tie up server threads.
+ */
+public class LocalSwiftGatewayStub implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalSwiftGatewayStub.class);
+
+    private static final String PAYMENT_ORDER_PATH = "/api/v1/payment-order";
+
+    private final Builder config;
+    private final HttpServer server;
+    private final ExecutorService serverExecutor;
+    private final ScheduledExecutorService delayScheduler;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Instant> issuedTokens = new ConcurrentHashMap<>();
+
+    // Fixed one-second throttling window: start of the current window and requests counted in it
+    private final AtomicLong throttleWindowStart = new AtomicLong(System.nanoTime());
+    private final LongAdder requestsInWindow = new LongAdder();
+
+    private final LongAdder tokensIssued = new LongAdder();
+    private final LongAdder tokensRejected = new LongAdder();
+    private final LongAdder paymentOrdersAccepted = new LongAdder();
+    private final LongAdder paymentOrdersFailed = new LongAdder();
+    private final LongAdder paymentOrdersThrottled = new LongAdder();
+    private final LongAdder paymentOrdersUnauthorized = new LongAdder();
+
+    private LocalSwiftGatewayStub(Builder config) throws IOException {
+        this.config = config;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", config.port), 1024);
+        this.serverExecutor = Executors.newFixedThreadPool(config.serverThreads, ThreadSupport.daemonThreadFactory("swift-stub"));
+        this.delayScheduler = Executors.newScheduledThreadPool(2, ThreadSupport.daemonThreadFactory("swift-stub-delay"));
+        server.setExecutor(serverExecutor);
+        server.createContext(SwiftApiGatewayService.TOKEN_PATH, this::handleToken);
+        server.createContext(PAYMENT_ORDER_PATH, this::handlePaymentOrder);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Base URL to use as swift.baseUrl, e.g. http://127.0.0.1:54321
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getTokensIssued() { return tokensIssued.sum(); }
+    public long getTokensRejected() { return tokensRejected.sum(); }
+    public long getPaymentOrdersAccepted() { return paymentOrdersAccepted.sum(); }
+    public long getPaymentOrdersFailed() { return paymentOrdersFailed.sum(); }
+    public long getPaymentOrdersThrottled() { return paymentOrdersThrottled.sum(); }
+    public long getPaymentOrdersUnauthorized() { return paymentOrdersUnauthorized.sum(); }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        delayScheduler.shutdownNow();
+        serverExecutor.shutdownNow();
+        logger.info("Stub stopped: tokens issued={}, rejected={}; payment orders accepted={}, failed={}, throttled={}, unauthorized={}",
+                getTokensIssued(), getTokensRejected(), getPaymentOrdersAccepted(), getPaymentOrdersFailed(),
+                getPaymentOrdersThrottled(), getPaymentOrdersUnauthorized());
+    }
+
+    // --- Token endpoint ---
+
+    private void handleToken(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "{\"error\":\"method_not_allowed\"}");
+                return;
+            }
+            String rejection = validateTokenRequest(exchange);
+            if (rejection != null) {
+                tokensRejected.increment();
+                respond(exchange, rejection.startsWith("invalid_client") ? 401 : 400,
+                        "{\"error\":\"" + rejection + "\"}");
+                return;
+            }
+            // Expired tokens are only dropped here, so the map stays as small as the tokens still valid
+            Instant now = Instant.now();
+            issuedTokens.values().removeIf(expiry -> !now.isBefore(expiry));
+            String token = UUID.randomUUID().toString();
+            issuedTokens.put(token, now.plus(config.tokenLifetime));
+            tokensIssued.increment();
+            respondLater(exchange, config.tokenLatency, 200, "{\"access_token\":\"" + token
+                    + "\",\"token_type\":\"Bearer\",\"expires_in\":" + config.tokenLifetime.getSeconds() + "}");
+        } catch (Exception e) {
+            logger.warn("Token request failed: {}", e.toString());
+            respond(exchange, 500, "{\"error\":\"server_error\"}");
+        }
+    }
+
+    // Returns null if the request is valid, otherwise an OAuth error code with a short reason
+    private String validateTokenRequest(HttpExchange exchange) throws Exception {
+        if (config.consumerKey != null) {
+            String expected = "Basic " + Base64.getEncoder().encodeToString(
+                    (config.consumerKey + ":" + config.consumerSecret).getBytes(StandardCharsets.UTF_8));
+            if (!expected.equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                return "invalid_client";
+            }
+        }
+
+        Map<String, String> form = parseForm(readBody(exchange));
+        if (!"urn:ietf:params:oauth:grant-type:jwt-bearer".equals(form.get("grant_type"))) {
+            return "unsupported_grant_type";
+        }
+        String assertion = form.get("assertion");
+        String[] parts = assertion == null ? new String[0] : assertion.split("\\.");
+        if (parts.length != 3) {
+            return "invalid_grant: malformed assertion";
+        }
+
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        JsonNode header = objectMapper.readTree(decoder.decode(parts[0]));
+        JsonNode payload = objectMapper.readTree(decoder.decode(parts[1]));
+        if (!"RS256".equals(header.path("alg").asText()) || !header.path("x5c").has(0)) {
+            return "invalid_grant: expected RS256 with x5c";
+        }
+
+        // Verify the signature with the public key of the leaf certificate carried in x5c
+        byte[] der = Base64.getDecoder().decode(header.path("x5c").get(0).asText());
+        X509Certificate cert = (X509Certificate) CertificateFactory.getInstance("X.509")
+                .generateCertificate(new ByteArrayInputStream(der));
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(cert.getPublicKey());
+        verifier.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+        if (!verifier.verify(decoder.decode(parts[2]))) {
+            return "invalid_grant: bad signature";
+        }
+
+        String expectedAudience = "127.0.0.1" + SwiftApiGatewayService.TOKEN_PATH;
+        if (!expectedAudience.equals(payload.path("aud").asText())) {
+            return "invalid_grant: aud must be " + expectedAudience;
+        }
+        if (payload.path("exp").asLong(0) < Instant.now().getEpochSecond()) {
+            return "invalid_grant: assertion expired";
+        }
+        return null;
+    }
+
+    // --- Payment order endpoint ---
+
+    private void handlePaymentOrder(HttpExchange exchange) throws IOException {
+        readBody(exchange);
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "{\"error\":\"method_not_allowed\"}");
+            return;
+        }
+        if (!isAuthorized(exchange.getRequestHeaders().getFirst("Authorization"))) {
+            paymentOrdersUnauthorized.increment();
+            respond(exchange, 401, "{\"error\":\"invalid_token\"}");
+            return;
+        }
+        if (isThrottled()) {
+            paymentOrdersThrottled.increment();
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            respond(exchange, 429, "{\"error\":\"too_many_requests\"}");
+            return;
+        }
+        if (config.errorRate > 0 && ThreadLocalRandom.current().nextDouble() < config.errorRate) {
+            paymentOrdersFailed.increment();
+            respondLater(exchange, config.paymentOrderLatency, 500, "{\"error\":\"internal_error\"}");
+            return;
+        }
+        paymentOrdersAccepted.increment();
+        respondLater(exchange, config.paymentOrderLatency, 201,
+                "{\"paymentOrderId\":\"" + UUID.randomUUID() + "\",\"status\":\"ACCEPTED\"}");
+    }
+
+    private boolean isAuthorized(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return false;
+        }
+        Instant expiry = issuedTokens.get(authorization.substring("Bearer ".length()));
+        return expiry != null && Instant.now().isBefore(expiry);
+    }
+
+    // Fixed one-second windows: more than maxRequestsPerSecond requests in a window are throttled
+    private boolean isThrottled() {
+        if (config.maxRequestsPerSecond <= 0) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long windowStart = throttleWindowStart.get();
+        if (now - windowStart >= TimeUnit.SECONDS.toNanos(1) && throttleWindowStart.compareAndSet(windowStart, now)) {
+            requestsInWindow.reset();
+        }
+        requestsInWindow.increment();
+        return requestsInWindow.sum() > config.maxRequestsPerSecond;
+    }
+
+    // --- Helpers ---
+
+    private void respondLater(HttpExchange exchange, Duration baseLatency, int status, String body) throws IOException {
+        long delayMicros = baseLatency.toNanos() / 1000;
+        if (config.latencyJitter.toNanos() > 0) {
+            delayMicros += ThreadLocalRandom.current().nextLong(config.latencyJitter.toNanos() / 1000 + 1);
+        }
+        if (delayMicros <= 0) {
+            respond(exchange, status, body);
+            return;
+        }
+        delayScheduler.schedule(() -> {
+            try {
+                respond(exchange, status, body);
+            } catch (IOException e) {
+                logger.debug("Client went away before delayed response: {}", e.toString());
+            }
+        }, delayMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> form = new HashMap<>();
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                form.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return form;
+    }
+
+    /**
+     * Configuration of the stub. All settings are optional.
+     */
+    public static final class Builder {
+        private int port = 0;
+        private int serverThreads = 32;
+        private String consumerKey;
+        private String consumerSecret;
+        private Duration tokenLifetime = Duration.ofMinutes(30);
+        private Duration tokenLatency = Duration.ZERO;
+        private Duration paymentOrderLatency = Duration.ZERO;
+        private Duration latencyJitter = Duration.ZERO;
+        private double errorRate = 0;
+        private int maxRequestsPerSecond = 0;
+
+        private Builder() {
+        }
+
+        /** Port to listen on; 0 (default) picks a free port. */
+        public Builder port(int port) { this.port = port; return this; }
+        public Builder serverThreads(int serverThreads) { this.serverThreads = serverThreads; return this; }
+
+        /** Expected Basic auth credentials for the token endpoint; not checked if not set. */
+        public Builder credentials(String consumerKey, String consumerSecret) {
+            this.consumerKey = consumerKey;
+            this.consumerSecret = consumerSecret;
+            return this;
+        }
+
+        /** expires_in of issued tokens; tokens are rejected with 401 afterwards. */
+        public Builder tokenLifetime(Duration tokenLifetime) { this.tokenLifetime = tokenLifetime; return this; }
+        public Builder tokenLatency(Duration tokenLatency) { this.tokenLatency = tokenLatency; return this; }
+        public Builder paymentOrderLatency(Duration paymentOrderLatency) { this.paymentOrderLatency = paymentOrderLatency; return this; }
+
+        /** Uniform random extra latency added to every delayed response. */
+        public Builder latencyJitter(Duration latencyJitter) { this.latencyJitter = latencyJitter; return this; }
+
+        /** Fraction (0..1) of payment orders answered with 500. */
+        public Builder errorRate(double errorRate) { this.errorRate = errorRate; return this; }
+
+        /** Payment orders above this rate get 429; 0 (default) disables throttling. */
+        public Builder maxRequestsPerSecond(int maxRequestsPerSecond) { this.maxRequestsPerSecond = maxRequestsPerSecond; return this; }
+
+        public LocalSwiftGatewayStub start() throws IOException {
+            LocalSwiftGatewayStub stub = new LocalSwiftGatewayStub(this);
+            stub.server.start();
+            logger.info("Local Swift gateway stub listening on {}", stub.getBaseUrl());
+            return stub;
+        }
+    }
+}
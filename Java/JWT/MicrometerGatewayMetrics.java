@@ -0,0 +1,84 @@
+package com.example.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * {@link GatewayMetrics} adapter publishing to a Micrometer {@link MeterRegistry}.
+ * Timers publish p50/p90/p99/p99.9 and a percentile histogram, so p99 can be compared across runs
+ * in whatever backend the registry exports to. Meters are created once and cached per tag value.
+ *
+ * Meters: swift.token.fetch (outcome), swift.jwt.sign, swift.payment.order (status),
+ * swift.errors (type), swift.resilience.events (event), swift.requests.inflight.
+ */
+public class MicrometerGatewayMetrics implements GatewayMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final MeterRegistry registry;
+    private final Timer tokenFetchSuccess;
+    private final Timer tokenFetchFailure;
+    private final Timer jwtSigning;
+    private final Map<Integer, Timer> paymentOrderTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> errorCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> eventCounters = new ConcurrentHashMap<>();
+
+    public MicrometerGatewayMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.tokenFetchSuccess = timer("swift.token.fetch", "outcome", "success");
+        this.tokenFetchFailure = timer("swift.token.fetch", "outcome", "failure");
+        this.jwtSigning = timer("swift.jwt.sign", null, null);
+    }
+
+    @Override
+    public void recordTokenFetch(long nanos, boolean success) {
+        (success ? tokenFetchSuccess : tokenFetchFailure).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordJwtSigning(long nanos) {
+        jwtSigning.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordPaymentOrder(long nanos, int status) {
+        paymentOrderTimers.computeIfAbsent(status, s -> timer("swift.payment.order", "status", String.valueOf(s)))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordError(String type) {
+        errorCounters.computeIfAbsent(type, t -> Counter.builder("swift.errors").tag("type", t).register(registry))
+                .increment();
+    }
+
+    @Override
+    public void recordResilienceEvent(String event) {
+        eventCounters.computeIfAbsent(event, e -> Counter.builder("swift.resilience.events").tag("event", e).register(registry))
+                .increment();
+    }
+
+    @Override
+    public void registerInFlightGauge(IntSupplier inFlight) {
+        Gauge.builder("swift.requests.inflight", inFlight, IntSupplier::getAsInt)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    private Timer timer(String name, String tagKey, String tagValue) {
+        Timer.Builder builder = Timer.builder(name)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram();
+        if (tagKey != null) {
+            builder.tag(tagKey, tagValue);
+        }
+        return builder.register(registry);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.api;
+
+import java.net.http.HttpResponse;
+
+/**
+ * Outcome of a single payment order within a bulk submission.
+ * Exactly one of {@link #getResponse()} and {@link #getError()} is non-null.
+ */
+public final class PaymentOrderResult {
+
+    private final int index;
+    private final AnMarkerParam order;
+    private final HttpResponse<String> response;
+    private final Exception error;
+
+    private PaymentOrderResult(int index, AnMarkerParam order, HttpResponse<String> response, Exception error) {
+        this.index = index;
+        this.order = order;
+        this.response = response;
+        this.error = error;
+    }
+
+    static PaymentOrderResult success(int index, AnMarkerParam order, HttpResponse<String> response) {
+        return new PaymentOrderResult(index, order, response, null);
+    }
+
+    static PaymentOrderResult failure(int index, AnMarkerParam order, Exception error) {
+        return new PaymentOrderResult(index, order, null, error);
+    }
+
+    /** Position of the order in the submitted list or stream. */
+    public int getIndex() { return index; }
+    public AnMarkerParam getOrder() { return order; }
+    public HttpResponse<String> getResponse() { return response; }
+    public Exception getError() { return error; }
+
+    /**
+     * True if the request completed and the gateway answered with a 2xx status.
+     */
+    public boolean isSuccess() {
+        return response != null && response.statusCode() / 100 == 2;
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentOrderResult{index=" + index
+                + (response != null ? ", status=" + response.statusCode() : ", error=" + error) + "}";
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.api;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Tail-latency settings for payment order requests. Everything is off by default.
+ *
+ * Supported properties:
+ * - swift.hedge.enabled: send a duplicate request when the first one is slower than the hedge delay (default false)
+ * - swift.hedge.percentile: latency percentile used as the hedge delay once enough samples exist (default 95)
+ * - swift.hedge.initialDelayMs: hedge delay until 100 latencies have been observed (default 200)
+ * - swift.hedge.minDelayMs: lower bound of the hedge delay (default 20)
+ * - swift.retry.maxRetries: retries for retryable statuses and I/O errors (default 0)
+ * - swift.retry.statuses: retryable HTTP statuses (default 429,502,503,504)
+ * - swift.retry.baseDelayMs / swift.retry.maxDelayMs: exponential backoff bounds, jittered (default 50 / 1000)
+ * - swift.circuitBreaker.failureThreshold: consecutive failures that open the breaker, 0 = disabled (default 0)
+ * - swift.circuitBreaker.openSeconds: how long the breaker stays open (default 5)
+ * - swift.idempotencyHeader: header carrying the per-order idempotency key shared by hedges and retries
+ */
+@Component
+public class ResilienceSettings {
+
+    @Value("${swift.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+    @Value("${swift.hedge.percentile:95}")
+    private double hedgePercentile;
+    @Value("${swift.hedge.initialDelayMs:200}")
+    private long hedgeInitialDelayMs;
+    @Value("${swift.hedge.minDelayMs:20}")
+    private long hedgeMinDelayMs;
+    @Value("${swift.retry.maxRetries:0}")
+    private int maxRetries;
+    @Value("${swift.retry.statuses:429,502,503,504}")
+    private String retryStatuses;
+    @Value("${swift.retry.baseDelayMs:50}")
+    private long retryBaseDelayMs;
+    @Value("${swift.retry.maxDelayMs:1000}")
+    private long retryMaxDelayMs;
+    @Value("${swift.circuitBreaker.failureThreshold:0}")
+    private int circuitBreakerFailureThreshold;
+    @Value("${swift.circuitBreaker.openSeconds:5}")
+    private long circuitBreakerOpenSeconds;
+    @Value("${swift.idempotencyHeader:Idempotency-Key}")
+    private String idempotencyHeader;
+
+    /**
+     * True if any of hedging, retries or the circuit breaker is switched on.
+     */
+    public boolean isEnabled() {
+        return hedgeEnabled || maxRetries > 0 || circuitBreakerFailureThreshold > 0;
+    }
+
+    public boolean isHedgeEnabled() { return hedgeEnabled; }
+    public double getHedgePercentile() { return hedgePercentile; }
+    public long getHedgeInitialDelayMs() { return hedgeInitialDelayMs; }
+    public long getHedgeMinDelayMs() { return hedgeMinDelayMs; }
+    public int getMaxRetries() { return maxRetries; }
+    public long getRetryBaseDelayMs() { return retryBaseDelayMs; }
+    public long getRetryMaxDelayMs() { return retryMaxDelayMs; }
+    public int getCircuitBreakerFailureThreshold() { return circuitBreakerFailureThreshold; }
+    public long getCircuitBreakerOpenSeconds() { return circuitBreakerOpenSeconds; }
+    public String getIdempotencyHeader() { return idempotencyHeader; }
+
+    public Set<Integer> getRetryStatuses() {
+        return Arrays.stream(retryStatuses.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(Integer::valueOf)
+                .collect(Collectors.toSet());
+    }
+}
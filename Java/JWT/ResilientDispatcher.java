@@ -0,0 +1,238 @@
+package com.example.api;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sends payment order requests with the tail-latency controls configured in {@link ResilienceSettings}:
+ * - hedging: if no response arrived after the hedge delay (a latency percentile learned from
+ *   earlier primary exchanges), an identical request with the same idempotency key is sent; the
+ *   first 2xx response wins and the other exchange is cancelled
+ * - retries with exponential backoff and jitter for retryable statuses and I/O errors
+ * - a circuit breaker, checked before every attempt, that fails fast while the gateway keeps failing
+ */
+public class ResilientDispatcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResilientDispatcher.class);
+
+    // Samples needed before the learned percentile replaces the initial hedge delay
+    private static final int MIN_HEDGE_SAMPLES = 100;
+    // The hedge delay is recomputed from the histogram every this many samples
+    private static final int HEDGE_DELAY_REFRESH_INTERVAL = 256;
+
+    private final HttpClient client;
+    private final ResilienceSettings settings;
+    private final GatewayMetrics metrics;
+    private final Set<Integer> retryStatuses;
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final ScheduledExecutorService scheduler;
+    private volatile long hedgeDelayNanos;
+
+    public ResilientDispatcher(HttpClient client, ResilienceSettings settings, GatewayMetrics metrics) {
+        this.client = client;
+        this.settings = settings;
+        this.metrics = metrics;
+        this.retryStatuses = settings.getRetryStatuses();
+        this.circuitBreaker = new CircuitBreaker(settings.getCircuitBreakerFailureThreshold(),
+                Duration.ofSeconds(settings.getCircuitBreakerOpenSeconds()));
+        this.hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(settings.getHedgeInitialDelayMs());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(ThreadSupport.daemonThreadFactory("swift-resilience"));
+    }
+
+    /**
+     * Sends the request, applying circuit breaker, retries and hedging.
+     * The request body publisher must be re-subscribable, since it may be sent more than once.
+     */
+    public CompletableFuture<HttpResponse<String>> dispatch(HttpRequest request) {
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        attempt(request, 0, result);
+        return result;
+    }
+
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Current hedge delay in nanoseconds.
+     */
+    public long getHedgeDelayNanos() {
+        return hedgeDelayNanos;
+    }
+
+    private void attempt(HttpRequest request, int retry, CompletableFuture<HttpResponse<String>> result) {
+        // Every attempt, retries included, goes through the breaker and reports its outcome to it
+        if (!circuitBreaker.tryAcquire()) {
+            metrics.recordResilienceEvent("circuit.rejected");
+            result.completeExceptionally(new CircuitBreaker.OpenException());
+            return;
+        }
+        CompletableFuture<HttpResponse<String>> exchange;
+        try {
+            exchange = settings.isHedgeEnabled()
+                    ? sendHedged(request)
+                    : client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            // Rejected before anything was sent (e.g. an invalid request): says nothing about the gateway
+            circuitBreaker.release();
+            result.completeExceptionally(e);
+            return;
+        }
+
+        exchange.whenComplete((response, error) -> {
+            Throwable cause = unwrap(error);
+            if (isGatewayHealthy(response)) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+            boolean retryable = response != null ? retryStatuses.contains(response.statusCode()) : cause instanceof IOException;
+            if (retryable && retry < settings.getMaxRetries() && !result.isDone()) {
+                long delay = backoffMillis(retry);
+                metrics.recordResilienceEvent("retry");
+                logger.debug("Retrying payment order ({}) in {}ms, retry {}",
+                        response != null ? response.statusCode() : cause, delay, retry + 1);
+                scheduler.schedule(() -> attempt(request, retry + 1, result), delay, TimeUnit.MILLISECONDS);
+                return;
+            }
+            if (response != null) {
+                result.complete(response);
+            } else {
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendHedged(HttpRequest request) {
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        List<CompletableFuture<HttpResponse<String>>> exchanges = new CopyOnWriteArrayList<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicBoolean sampled = new AtomicBoolean();
+        AtomicReference<HttpResponse<String>> failedResponse = new AtomicReference<>();
+        long start = System.nanoTime();
+
+        launch(request, false, start, exchanges, pending, sampled, failedResponse, result);
+        ScheduledFuture<?> hedge = scheduler.schedule(() -> {
+            if (!result.isDone()) {
+                pending.incrementAndGet();
+                metrics.recordResilienceEvent("hedge.sent");
+                try {
+                    launch(request, true, start, exchanges, pending, sampled, failedResponse, result);
+                } catch (RuntimeException e) {
+                    // The hedge could not be sent; the primary may still answer
+                    if (pending.decrementAndGet() == 0) {
+                        HttpResponse<String> failed = failedResponse.get();
+                        if (failed != null) {
+                            result.complete(failed);
+                        } else {
+                            result.completeExceptionally(e);
+                        }
+                    }
+                }
+            }
+        }, hedgeDelayNanos, TimeUnit.NANOSECONDS);
+
+        // First 2xx response wins: stop the hedge timer and cancel whichever exchange is still running
+        result.whenComplete((response, error) -> {
+            hedge.cancel(false);
+            exchanges.forEach(exchange -> exchange.cancel(true));
+        });
+        return result;
+    }
+
+    private void launch(HttpRequest request, boolean isHedge, long start,
+                        List<CompletableFuture<HttpResponse<String>>> exchanges, AtomicInteger pending,
+                        AtomicBoolean sampled, AtomicReference<HttpResponse<String>> failedResponse,
+                        CompletableFuture<HttpResponse<String>> result) {
+        CompletableFuture<HttpResponse<String>> exchange = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        exchanges.add(exchange);
+        if (result.isDone()) {
+            exchange.cancel(true);
+            return;
+        }
+        exchange.whenComplete((response, error) -> {
+            // The hedge delay is learned from the primary's latency, whatever its status. When the
+            // hedge wins first the primary is cancelled, so the time so far stands in for it.
+            boolean successful = isSuccessful(response);
+            if ((!isHedge && response != null || isHedge && successful && !result.isDone())
+                    && sampled.compareAndSet(false, true)) {
+                recordLatency(System.nanoTime() - start);
+            }
+            if (successful) {
+                if (result.complete(response) && isHedge) {
+                    metrics.recordResilienceEvent("hedge.won");
+                }
+                return;
+            }
+            if (response != null) {
+                failedResponse.set(response);
+            }
+            if (pending.decrementAndGet() == 0) {
+                // Only fail once every exchange has failed; a later one may still succeed
+                HttpResponse<String> failed = failedResponse.get();
+                if (failed != null) {
+                    result.complete(failed);
+                } else {
+                    result.completeExceptionally(unwrap(error));
+                }
+            }
+        });
+    }
+
+    // Responses that may win a hedge race; any other response waits for the remaining exchanges
+    private static boolean isSuccessful(HttpResponse<String> response) {
+        return response != null && response.statusCode() >= 200 && response.statusCode() < 300;
+    }
+
+    // Responses that count as a success for the circuit breaker: the gateway answered and is not
+    // overloaded, even if it rejected the request (e.g. 401, 404, 409)
+    private static boolean isGatewayHealthy(HttpResponse<String> response) {
+        return response != null && response.statusCode() < 500 && response.statusCode() != 429;
+    }
+
+    private void recordLatency(long nanos) {
+        latencies.record(nanos);
+        long count = latencies.getCount();
+        if (count >= MIN_HEDGE_SAMPLES && count % HEDGE_DELAY_REFRESH_INTERVAL == 0) {
+            long learned = latencies.snapshot().getPercentile(settings.getHedgePercentile());
+            hedgeDelayNanos = Math.max(learned, TimeUnit.MILLISECONDS.toNanos(settings.getHedgeMinDelayMs()));
+        }
+    }
+
+    // Exponential backoff with equal jitter: half the delay is fixed, the other half random
+    private long backoffMillis(int retry) {
+        long exponential = settings.getRetryBaseDelayMs() << Math.min(retry, 20);
+        long capped = Math.min(settings.getRetryMaxDelayMs(), exponential);
+        long half = capped / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
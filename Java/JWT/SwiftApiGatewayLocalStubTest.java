@@ -0,0 +1,94 @@
+package com.example.api;
+
+import com.example.test.ItTest; // Assuming this is your base class
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Runs the gateway client against {@link LocalSwiftGatewayStub} instead of the e2e environment,
+ * so it needs no network and gives reproducible numbers.
+ */
+public class SwiftApiGatewayLocalStubTest extends ItTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftApiGatewayLocalStubTest.class);
+
+    private static final String CONSUMER_KEY = "local-consumer-key";
+    private static final String CONSUMER_SECRET = "local-consumer-secret";
+    private static final String P12_PASSWORD = "changeit";
+
+    private static LocalSwiftGatewayStub stub;
+
+    @Autowired
+    private SwiftApiGatewayService swiftApiGatewayService;
+
+    @DynamicPropertySource
+    static void swiftProperties(DynamicPropertyRegistry registry) throws Exception {
+        stub = LocalSwiftGatewayStub.builder()
+                .credentials(CONSUMER_KEY, CONSUMER_SECRET)
+                .tokenLifetime(Duration.ofMinutes(5))
+                .paymentOrderLatency(Duration.ofMillis(5))
+                .start();
+        registry.add("swift.baseUrl", stub::getBaseUrl);
+        registry.add("swift.consumerKey", () -> CONSUMER_KEY);
+        registry.add("swift.consumerSecret", () -> CONSUMER_SECRET);
+        registry.add("swift.p12File", generateKeystore()::toString);
+        registry.add("swift.p12Password", () -> P12_PASSWORD);
+        registry.add("swift.scope", () -> "swift.apitracker");
+        registry.add("swift.http.version", () -> "HTTP_1_1"); // The stub speaks plain HTTP/1.1
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @Test
+    void tokenRetrieval_verifiesJwtAgainstStub() throws Exception {
+        String accessToken = swiftApiGatewayService.getAccessToken();
+        assertNotNull(accessToken, "Access token must be retrieved.");
+        assertEquals(0, stub.getTokensRejected(), "Stub must accept the signed JWT assertion");
+    }
+
+    @Test
+    void bulkPaymentOrders_allAccepted() throws Exception {
+        List<AnMarkerParam> orders = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            orders.add(new AnMarkerParam());
+        }
+
+        List<PaymentOrderResult> results = swiftApiGatewayService.sendPaymentOrdersBulk(orders);
+
+        assertEquals(orders.size(), results.stream().filter(PaymentOrderResult::isSuccess).count(),
+                "All payment orders should be accepted by the stub");
+        logger.info("Bulk run against stub:\n{}", ((InMemoryGatewayMetrics) swiftApiGatewayService.getMetrics()).snapshot());
+    }
+
+    // Self-signed client certificate, created with the JDK's keytool
+    private static Path generateKeystore() throws Exception {
+        Path keystore = Files.createTempDirectory("swift-stub").resolve("client.p12");
+        Process keytool = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "client", "-keyalg", "RSA", "-keysize", "2048",
+                "-dname", "CN=Local Stub Client, O=Example, C=BE", "-validity", "1",
+                "-storetype", "PKCS12", "-keystore", keystore.toString(),
+                "-storepass", P12_PASSWORD, "-keypass", P12_PASSWORD)
+                .inheritIO()
+                .start();
+        assertEquals(0, keytool.waitFor(), "keytool failed");
+        return keystore;
+    }
+}
@@ -3,18 +3,40 @@ package com.example.api;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.annotation.JsonInclude; // <-- NEW IMPORT
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 
 @Service
@@ -28,14 +50,24 @@ public class SwiftApiGatewayService {
 
     private final SwiftJwtTokenComponent jwtTokenComponent;
     private final HttpClient client;
+    private final SwiftHttpClientFactory httpClientFactory;
     private final ObjectMapper objectMapper; // <-- Initialized in constructor
-    private volatile String accessToken = null; // Caches the token for re-use
+    private final JsonBodyPool paymentOrderBodies; // Cached writer + pooled buffers for payment order bodies
+    private final Duration refreshSkew;
+    private final ScheduledExecutorService tokenRefreshScheduler; // Refresh timers of all institutions' token holders
+    private final ExecutorService tokenFetchExecutor; // Token requests, one thread each (virtual when available)
+    private final Institution defaultInstitution; // Credentials from swift.* properties
+    private final Map<String, Institution> institutions = new ConcurrentHashMap<>();
+    private final InFlightLimiter inFlightLimiter; // Caps concurrent async requests
+    private final Duration requestTimeout;
+    private final ExecutorService bulkExecutor; // Virtual threads when available
+    private final int bulkMaxConcurrency;
+    private final GatewayMetrics metrics;
+    private final AtomicInteger requestsInFlight = new AtomicInteger(); // All payment order paths
+    private final ResilienceSettings resilienceSettings;
+    private final ResilientDispatcher dispatcher; // Hedging, retries and circuit breaker (opt-in)
 
-    // Hardcoded mandatory header
-    private final String institutionHeader = "AABBCCDD";
-    
     // These are now final fields, injected via the constructor
-    private final String consumerSecret;
     private final String baseUrl;
     private final String tokenUrl;
     private final String paymentOrderUrl;
@@ -48,12 +80,19 @@ public class SwiftApiGatewayService {
      */
     public SwiftApiGatewayService(
             SwiftJwtTokenComponent jwtTokenComponent,
+            SwiftHttpClientFactory httpClientFactory,
+            ObjectProvider<GatewayMetrics> metricsProvider,
+            ResilienceSettings resilienceSettings,
             @Value("${swift.baseUrl}") String baseUrl,
-            @Value("${swift.consumerSecret}") String consumerSecret) {
+            @Value("${swift.consumerSecret}") String consumerSecret,
+            @Value("${swift.institution:AABBCCDD}") String institution,
+            @Value("${swift.token.refreshSkewSeconds:60}") long refreshSkewSeconds,
+            @Value("${swift.async.maxInFlight:1000}") int maxInFlight,
+            @Value("${swift.requestTimeoutSeconds:30}") long requestTimeoutSeconds,
+            @Value("${swift.bulk.maxConcurrency:200}") int bulkMaxConcurrency) throws Exception {
         
         this.jwtTokenComponent = jwtTokenComponent;
         this.baseUrl = baseUrl;
-        this.consumerSecret = consumerSecret;
         
         // Construct the full URLs using the injected base URL and hardcoded paths
         this.tokenUrl = this.baseUrl + TOKEN_PATH;
@@ -62,37 +101,147 @@ public class SwiftApiGatewayService {
         logger.debug("Token URL set to: {}", tokenUrl);
         logger.debug("Payment Order URL set to: {}", paymentOrderUrl);
 
-        // Build standard HttpClient.
-        this.client = HttpClient.newBuilder().build();
+        // HttpClient is built from swift.http.* settings (HTTP/2, connect timeout, executor, pooling).
+        this.httpClientFactory = httpClientFactory;
+        this.client = httpClientFactory.buildClient();
 
         // KEY FIX: Configure the ObjectMapper to ignore all fields that are null.
         this.objectMapper = new ObjectMapper();
         this.objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        this.paymentOrderBodies = new JsonBodyPool(objectMapper.writerFor(AnMarkerParam.class), 256, 64 * 1024);
+
+        // Tokens are refreshed in the background refreshSkewSeconds before they expire
+        this.refreshSkew = Duration.ofSeconds(refreshSkewSeconds);
+        // The scheduler only fires timers; the blocking token requests (signing, client.send) run on
+        // their own threads, so a slow token endpoint of one institution does not delay the others
+        this.tokenRefreshScheduler = Executors.newSingleThreadScheduledExecutor(ThreadSupport.daemonThreadFactory("swift-token-refresh"));
+        this.tokenFetchExecutor = ThreadSupport.newPerTaskExecutor("swift-token-fetch");
+        this.defaultInstitution = newInstitution(institution, jwtTokenComponent, consumerSecret);
+        this.institutions.put(institution, defaultInstitution);
+
+        this.inFlightLimiter = new InFlightLimiter(maxInFlight);
+        this.requestTimeout = Duration.ofSeconds(requestTimeoutSeconds);
+
+        this.bulkExecutor = ThreadSupport.newPerTaskExecutor("swift-bulk");
+        this.bulkMaxConcurrency = bulkMaxConcurrency;
+
+        // Uses the GatewayMetrics bean if one is defined, otherwise keeps metrics in memory
+        this.metrics = metricsProvider.getIfAvailable(InMemoryGatewayMetrics::new);
+        this.metrics.registerInFlightGauge(requestsInFlight::get);
+
+        this.resilienceSettings = resilienceSettings;
+        this.dispatcher = new ResilientDispatcher(client, resilienceSettings, metrics);
     }
 
     /**
-     * Retrieves the access token, using the cached one if available (thread-safe check).
+     * The metrics sink this service reports to. Cast to {@link InMemoryGatewayMetrics} (the default)
+     * to take snapshots.
+     */
+    public GatewayMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Retrieves the access token. A cached, unexpired token is returned without blocking;
+     * only the very first call (or a call after the token ran out) waits for the token endpoint.
      */
     public String getAccessToken() throws Exception {
-        if (accessToken == null) {
-            synchronized (this) {
-                if (accessToken == null) {
-                    accessToken = fetchNewAccessToken();
-                }
-            }
+        return defaultInstitution.tokens.getToken();
+    }
+
+    /**
+     * Retrieves the access token of a registered institution.
+     * @see #getAccessToken()
+     */
+    public String getAccessToken(String institution) throws Exception {
+        return institution(institution).tokens.getToken();
+    }
+
+    /**
+     * Registers an additional institution with its own credentials. Each institution gets its own
+     * signer, cached token and refresh schedule, so threads working for different institutions
+     * never wait on each other. Re-registering an institution replaces its credentials, except for
+     * the default institution, whose credentials come from the swift.* properties.
+     *
+     * @throws IllegalArgumentException If the credentials are for the default institution.
+     */
+    public void registerInstitution(InstitutionCredentials credentials) throws Exception {
+        if (defaultInstitution.id.equals(credentials.getInstitution())) {
+            throw new IllegalArgumentException("Institution " + credentials.getInstitution()
+                    + " is the default institution configured by swift.* properties and cannot be re-registered");
         }
-        return accessToken;
+        SwiftJwtTokenComponent signer = new SwiftJwtTokenComponent(credentials.getP12File(), credentials.getP12Password(),
+                credentials.getConsumerKey(), credentials.getScope(), baseUrl);
+        signer.initSecurityPrimitives(); // Loads in the background; the first token request waits for it
+        Institution previous = institutions.put(credentials.getInstitution(),
+                newInstitution(credentials.getInstitution(), signer, credentials.getConsumerSecret()));
+        if (previous != null) {
+            close(previous);
+        }
+        logger.info("Registered institution {} (consumer key {})", credentials.getInstitution(), credentials.getConsumerKey());
+    }
+
+    public Set<String> getRegisteredInstitutions() {
+        return institutions.keySet();
+    }
+
+    private Institution newInstitution(String id, SwiftJwtTokenComponent signer, String consumerSecret) {
+        AccessTokenHolder tokens = new AccessTokenHolder(() -> fetchNewAccessToken(signer, consumerSecret),
+                refreshSkew, tokenRefreshScheduler, tokenFetchExecutor);
+        return new Institution(id, signer, consumerSecret, tokens);
+    }
+
+    private void close(Institution institution) {
+        institution.tokens.close();
+        if (institution.signer != jwtTokenComponent) {
+            institution.signer.close(); // The Spring-managed signer is closed by the container
+        }
+    }
+
+    private Institution institution(String id) {
+        Institution institution = institutions.get(id);
+        if (institution == null) {
+            throw new IllegalArgumentException("Institution not registered: " + id);
+        }
+        return institution;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        institutions.values().forEach(this::close);
+        tokenRefreshScheduler.shutdownNow();
+        tokenFetchExecutor.shutdownNow();
+        bulkExecutor.shutdownNow();
+        dispatcher.close();
     }
 
     /**
      * Executes the JWT Bearer Token request to get a new access token.
+     * The expires_in value of the response is used to compute the token's expiry.
      */
-    private String fetchNewAccessToken() throws Exception {
-        logger.info("Fetching new access token.");
+    private AccessTokenHolder.Token fetchNewAccessToken(SwiftJwtTokenComponent signer, String consumerSecret)
+            throws Exception {
+        long start = System.nanoTime();
+        try {
+            AccessTokenHolder.Token token = requestAccessToken(signer, consumerSecret);
+            metrics.recordTokenFetch(System.nanoTime() - start, true);
+            return token;
+        } catch (Exception e) {
+            metrics.recordTokenFetch(System.nanoTime() - start, false);
+            metrics.recordError("token." + e.getClass().getSimpleName());
+            throw e;
+        }
+    }
+
+    private AccessTokenHolder.Token requestAccessToken(SwiftJwtTokenComponent jwtTokenComponent, String consumerSecret)
+            throws Exception {
+        logger.info("Fetching new access token for consumer key {}.", jwtTokenComponent.getConsumerKey());
         
         // 1. Build JWT using the component. 
         // The component now constructs the 'aud' claim internally using the hardcoded path.
+        long signStart = System.nanoTime();
         String jwt = jwtTokenComponent.buildSignedJwt(tokenUrl); // Passing token URL for consistency
+        metrics.recordJwtSigning(System.nanoTime() - signStart);
         logger.debug("JWT assertion built (length: {})", jwt.length());
         
         // 2. Basic Auth (Consumer Key:Consumer Secret)
@@ -121,9 +270,14 @@ public class SwiftApiGatewayService {
 
         JsonNode root = objectMapper.readTree(response.body());
         String token = root.get("access_token").asText();
+        long expiresIn = root.path("expires_in").asLong(0);
+        if (expiresIn <= 0) {
+            // Without a lifetime the token would count as expired at once and be refetched on every call
+            throw new RuntimeException("Token response has no positive expires_in: " + root.path("expires_in"));
+        }
         
-        logger.info("Access token retrieved successfully. Expires in: {}s", root.get("expires_in").asText());
-        return token;
+        logger.info("Access token retrieved successfully. Expires in: {}s", expiresIn);
+        return new AccessTokenHolder.Token(token, Instant.now().plusSeconds(expiresIn));
     }
     
     /**
@@ -135,30 +289,333 @@ public class SwiftApiGatewayService {
      * @return The HttpResponse from the payment order API.
      */
     public HttpResponse<String> sendPaymentOrderPost(AnMarkerParam markerParam) throws Exception {
-        // 1. Serialize the object into a JSON string using the ObjectMapper
-        String jsonBody = objectMapper.writeValueAsString(markerParam);
-        logger.debug("Payment order JSON body: {}", jsonBody);
+        return sendPaymentOrderPost(defaultInstitution, markerParam);
+    }
 
-        // 2. Send the authenticated request
-        return sendAuthenticatedRequest(this.paymentOrderUrl, jsonBody);
+    /**
+     * Sends a payment order on behalf of a registered institution.
+     * @see #sendPaymentOrderPost(AnMarkerParam)
+     */
+    public HttpResponse<String> sendPaymentOrderPost(String institution, AnMarkerParam markerParam) throws Exception {
+        return sendPaymentOrderPost(institution(institution), markerParam);
+    }
+
+    private HttpResponse<String> sendPaymentOrderPost(Institution institution, AnMarkerParam markerParam) throws Exception {
+        // 1. Serialize the object straight into a pooled buffer (no intermediate String)
+        try (JsonBodyPool.Body jsonBody = serializePaymentOrder(markerParam)) {
+            // 2. Send the authenticated request; the buffer is returned to the pool once it completes
+            logger.info("Sending authenticated POST request to: {}", this.paymentOrderUrl);
+            HttpResponse<String> response = sendAuthenticatedRequest(institution, this.paymentOrderUrl,
+                    jsonBody.publisher(), requestTimeout);
+            jsonBody.responseReceived();
+            return response;
+        }
     }
 
     /**
-     * Generic internal method to send a POST request with the cached access token.
+     * Non-blocking variant of {@link #sendPaymentOrderPost(AnMarkerParam)} using the default
+     * request timeout (swift.requestTimeoutSeconds).
      */
-    private HttpResponse<String> sendAuthenticatedRequest(String url, String jsonBody) throws Exception {
-        String token = getAccessToken(); // Fetches token if it's null
+    public CompletableFuture<HttpResponse<String>> sendPaymentOrderPostAsync(AnMarkerParam markerParam) {
+        return sendPaymentOrderPostAsync(defaultInstitution, markerParam, requestTimeout);
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
+    /**
+     * Non-blocking send on behalf of a registered institution, using the default request timeout.
+     */
+    public CompletableFuture<HttpResponse<String>> sendPaymentOrderPostAsync(String institution, AnMarkerParam markerParam) {
+        return sendPaymentOrderPostAsync(institution(institution), markerParam, requestTimeout);
+    }
+
+    /**
+     * Non-blocking variant of {@link #sendPaymentOrderPost(AnMarkerParam)}.
+     * Token lookup, serialization and the send are all chained on the returned future, so no
+     * thread is held while the request is in flight. At most swift.async.maxInFlight requests
+     * run at once; further calls queue until a slot frees up.
+     * @param markerParam The object containing the payment order details.
+     * @param timeout Timeout for this request, after which the future fails with HttpTimeoutException.
+     * @return A future completing with the HttpResponse from the payment order API.
+     */
+    public CompletableFuture<HttpResponse<String>> sendPaymentOrderPostAsync(AnMarkerParam markerParam, Duration timeout) {
+        return sendPaymentOrderPostAsync(defaultInstitution, markerParam, timeout);
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendPaymentOrderPostAsync(Institution institution,
+                                                                           AnMarkerParam markerParam, Duration timeout) {
+        return inFlightLimiter.acquire()
+                .thenCompose(ignored -> institution.tokens.getTokenAsync())
+                .thenCompose(token -> {
+                    JsonBodyPool.Body jsonBody = null;
+                    try {
+                        jsonBody = serializePaymentOrder(markerParam);
+                        JsonBodyPool.Body sentBody = jsonBody;
+                        long start = System.nanoTime();
+                        requestsInFlight.incrementAndGet();
+                        return sendAuthenticatedAsync(institution, token, jsonBody.publisher(), timeout)
+                                .whenComplete((response, error) -> {
+                                    if (response != null) {
+                                        sentBody.responseReceived();
+                                    }
+                                    sentBody.close();
+                                    requestsInFlight.decrementAndGet();
+                                    recordPaymentOrder(start, response, error);
+                                });
+                    } catch (Exception e) {
+                        if (jsonBody != null) {
+                            jsonBody.close();
+                        }
+                        metrics.recordError(e.getClass().getSimpleName());
+                        return CompletableFuture.<HttpResponse<String>>failedFuture(e);
+                    }
+                })
+                .whenComplete((response, error) -> inFlightLimiter.release());
+    }
+
+    /**
+     * Sends the payment order with {@code token}. If the gateway rejects the token with 401
+     * (revoked, or clock skew beyond the refresh margin), drops it and sends once more with a new one.
+     */
+    private CompletableFuture<HttpResponse<String>> sendAuthenticatedAsync(Institution institution, String token,
+                                                                        HttpRequest.BodyPublisher body, Duration timeout) {
+        return dispatchAsync(buildAuthenticatedRequest(this.paymentOrderUrl, institution.id, token, body)
+                .timeout(timeout)
+                .build())
+                .thenCompose(response -> {
+                    if (response.statusCode() != 401) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    tokenRejected(institution, token);
+                    return institution.tokens.getTokenAsync()
+                            .thenCompose(fresh -> dispatchAsync(buildAuthenticatedRequest(this.paymentOrderUrl,
+                                    institution.id, fresh, body).timeout(timeout).build()));
+                });
+    }
+
+    /**
+     * Sends a batch of payment orders using at most swift.bulk.maxConcurrency concurrent requests.
+     * @see #sendPaymentOrdersBulk(Stream, int)
+     */
+    public List<PaymentOrderResult> sendPaymentOrdersBulk(List<AnMarkerParam> orders) throws InterruptedException {
+        return sendPaymentOrdersBulk(orders.stream(), bulkMaxConcurrency);
+    }
+
+    /**
+     * Sends a batch of payment orders, each on its own (virtual, if available) thread.
+     * At most maxConcurrency requests are outstanding; the stream is only consumed further once
+     * a slot frees up, so large or lazily generated streams are not materialized up front.
+     * Every request carries the default request timeout, so one stalled response cannot hold up the batch.
+     * @param orders The payment orders to send.
+     * @param maxConcurrency Maximum number of concurrent requests.
+     * @return One result per order, successful or failed, in input order.
+     */
+    public List<PaymentOrderResult> sendPaymentOrdersBulk(Stream<AnMarkerParam> orders, int maxConcurrency)
+            throws InterruptedException {
+        return sendPaymentOrdersBulk(defaultInstitution, orders, maxConcurrency);
+    }
+
+    /**
+     * Sends a batch of payment orders on behalf of a registered institution.
+     * @see #sendPaymentOrdersBulk(Stream, int)
+     */
+    public List<PaymentOrderResult> sendPaymentOrdersBulk(String institution, Stream<AnMarkerParam> orders,
+                                                          int maxConcurrency) throws InterruptedException {
+        return sendPaymentOrdersBulk(institution(institution), orders, maxConcurrency);
+    }
+
+    private List<PaymentOrderResult> sendPaymentOrdersBulk(Institution institution, Stream<AnMarkerParam> orders,
+                                                           int maxConcurrency) throws InterruptedException {
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<Future<PaymentOrderResult>> futures = new ArrayList<>();
+
+        Iterator<AnMarkerParam> iterator = orders.iterator();
+        int index = 0;
+        while (iterator.hasNext()) {
+            AnMarkerParam order = iterator.next();
+            int orderIndex = index++;
+            permits.acquire(); // Backpressure: wait for a free slot before pulling the next order
+            futures.add(bulkExecutor.submit(() -> {
+                try {
+                    return PaymentOrderResult.success(orderIndex, order, sendPaymentOrder(institution, order, requestTimeout));
+                } catch (Exception e) {
+                    return PaymentOrderResult.failure(orderIndex, order, e);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        logger.info("Submitted {} payment orders in bulk (max concurrency {})", index, maxConcurrency);
+
+        List<PaymentOrderResult> results = new ArrayList<>(futures.size());
+        for (Future<PaymentOrderResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                // Tasks catch their own exceptions, so this only happens on an unexpected Error
+                throw new IllegalStateException("Bulk payment order task failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Synchronous send with an explicit request timeout, used by the bulk API.
+     */
+    private HttpResponse<String> sendPaymentOrder(Institution institution, AnMarkerParam markerParam, Duration timeout)
+            throws Exception {
+        try (JsonBodyPool.Body jsonBody = serializePaymentOrder(markerParam)) {
+            HttpResponse<String> response = sendAuthenticatedRequest(institution, this.paymentOrderUrl,
+                    jsonBody.publisher(), timeout);
+            jsonBody.responseReceived();
+            return response;
+        }
+    }
+
+    /**
+     * Serializes a payment order into a pooled buffer. The body is only decoded for logging
+     * when debug logging is enabled.
+     */
+    private JsonBodyPool.Body serializePaymentOrder(AnMarkerParam markerParam) throws IOException {
+        JsonBodyPool.Body jsonBody = paymentOrderBodies.write(markerParam);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Payment order JSON body: {}", jsonBody);
+        }
+        return jsonBody;
+    }
+
+    /**
+     * TLS handshakes (TLS connections opened) by the client so far. Compare with
+     * {@link #getTlsConnectionsReused()} to see whether handshakes are eating into the latency budget.
+     * Plain HTTP connections are not counted.
+     */
+    public long getTlsHandshakes() {
+        return httpClientFactory.getTlsHandshakes();
+    }
+
+    /**
+     * https requests that were sent over an already open TLS connection.
+     */
+    public long getTlsConnectionsReused() {
+        return httpClientFactory.getTlsConnectionsReused();
+    }
+
+    /**
+     * Number of payment order requests currently in flight (sync, async and bulk).
+     */
+    public int getInFlightRequests() {
+        return requestsInFlight.get();
+    }
+
+    /**
+     * Generic internal method to send a POST request with the cached access token. If the gateway
+     * rejects the token with 401, the token is dropped and the request sent once more with a new one.
+     */
+    private HttpResponse<String> sendAuthenticatedRequest(Institution institution, String url,
+                                                          HttpRequest.BodyPublisher jsonBody, Duration timeout)
+            throws Exception {
+        String token = institution.tokens.getToken(); // Cached token, refreshed in the background
+
+        HttpResponse<String> response = sendMeasured(buildAuthenticatedRequest(url, institution.id, token, jsonBody)
+                .timeout(timeout)
+                .build());
+        if (response.statusCode() == 401) {
+            tokenRejected(institution, token);
+            response = sendMeasured(buildAuthenticatedRequest(url, institution.id, institution.tokens.getToken(), jsonBody)
+                    .timeout(timeout)
+                    .build());
+        }
+        return response;
+    }
+
+    private void tokenRejected(Institution institution, String token) {
+        logger.warn("Gateway rejected the access token of institution {} (401), retrying once with a new token",
+                institution.id);
+        institution.tokens.invalidate(token);
+    }
+
+    /**
+     * Blocking send that records latency by status, errors and the in-flight count.
+     */
+    private HttpResponse<String> sendMeasured(HttpRequest request) throws Exception {
+        long start = System.nanoTime();
+        requestsInFlight.incrementAndGet();
+        HttpResponse<String> response = null;
+        Exception error = null;
+        try {
+            if (resilienceSettings.isEnabled()) {
+                response = dispatcher.dispatch(request).join();
+            } else {
+                response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            }
+            return response;
+        } catch (CompletionException e) {
+            error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            throw error;
+        } catch (Exception e) {
+            error = e;
+            throw e;
+        } finally {
+            requestsInFlight.decrementAndGet();
+            recordPaymentOrder(start, response, error);
+        }
+    }
+
+    /**
+     * Sends through the resilient dispatcher when hedging, retries or the circuit breaker are enabled.
+     */
+    private CompletableFuture<HttpResponse<String>> dispatchAsync(HttpRequest request) {
+        return resilienceSettings.isEnabled()
+                ? dispatcher.dispatch(request)
+                : client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void recordPaymentOrder(long startNanos, HttpResponse<String> response, Throwable error) {
+        long elapsed = System.nanoTime() - startNanos;
+        if (response != null) {
+            metrics.recordPaymentOrder(elapsed, response.statusCode());
+            if (response.statusCode() >= 400) {
+                metrics.recordError("http." + response.statusCode());
+            }
+        } else {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            metrics.recordPaymentOrder(elapsed, 0);
+            metrics.recordError(cause == null ? "unknown" : cause.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Builds a POST request carrying the bearer token and mandatory headers.
+     */
+    private HttpRequest.Builder buildAuthenticatedRequest(String url, String institutionHeader, String token,
+                                                          HttpRequest.BodyPublisher body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .header("Content-Type", "application/json")
                 .header("Accept", "application/json")
                 .header("Authorization", "Bearer " + token)
                 .header("Institution", institutionHeader)
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                .build();
+                .POST(body);
+        if (resilienceSettings.isEnabled()) {
+            // Hedged and retried copies reuse the built request, so they all carry this key
+            builder.header(resilienceSettings.getIdempotencyHeader(), UUID.randomUUID().toString());
+        }
+        return builder;
+    }
 
-        logger.info("Sending authenticated POST request to: {}", url);
-        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Per-institution state: signer, credentials and token cache with its own refresh schedule.
+     */
+    private static final class Institution {
+        private final String id;
+        private final SwiftJwtTokenComponent signer;
+        private final String consumerSecret;
+        private final AccessTokenHolder tokens;
+
+        private Institution(String id, SwiftJwtTokenComponent signer, String consumerSecret, AccessTokenHolder tokens) {
+            this.id = id;
+            this.signer = signer;
+            this.consumerSecret = consumerSecret;
+            this.tokens = tokens;
+        }
     }
-}
\ No newline at end of file
+}
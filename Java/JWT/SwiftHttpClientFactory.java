@@ -0,0 +1,323 @@
+package com.example.api;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.TrustManager;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Builds the HttpClient used by {@link SwiftApiGatewayService} from swift.http.* properties
+ * and keeps track of how many requests it sends and TLS handshakes it performs.
+ *
+ * The JDK HttpClient does not report its connections, so they are only seen through the SSLEngine
+ * each TLS connection creates: plain HTTP connections (e.g. to the local stub) are not counted, and
+ * the number of connections currently open is unknown, since pooled connections close without notice.
+ *
+ * Supported properties:
+ * - swift.http.version: HTTP_2 (default, multiplexes requests over few connections) or HTTP_1_1
+ * - swift.http.connectTimeoutSeconds: connect timeout (default 10)
+ * - swift.http.executor: virtual, fixed or default (the client's own cached pool)
+ * - swift.http.executorThreads: pool size for the fixed executor (default 16)
+ * - swift.http.keepAliveTimeoutSeconds: idle time before pooled connections are closed (default 1200)
+ * - swift.http.connectionPoolSize: max idle HTTP/1.1 connections kept per client, 0 = unlimited (default 0)
+ *
+ * The last two are applied through the JDK-wide jdk.httpclient.keepalive.timeout and
+ * jdk.httpclient.connectionPoolSize system properties, which the JDK reads once, when its
+ * HttpClient implementation classes are loaded. They therefore only take effect if no HttpClient
+ * was built in this JVM before the first {@link #buildClient()}; to be sure, pass them at JVM
+ * startup instead (-Djdk.httpclient.keepalive.timeout=... -Djdk.httpclient.connectionPoolSize=...),
+ * which also takes precedence over the swift.http.* values.
+ */
+@Component
+public class SwiftHttpClientFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftHttpClientFactory.class);
+
+    @Value("${swift.http.version:HTTP_2}")
+    private String version;
+    @Value("${swift.http.connectTimeoutSeconds:10}")
+    private long connectTimeoutSeconds;
+    @Value("${swift.http.executor:default}")
+    private String executorType;
+    @Value("${swift.http.executorThreads:16}")
+    private int executorThreads;
+    @Value("${swift.http.keepAliveTimeoutSeconds:1200}")
+    private long keepAliveTimeoutSeconds;
+    @Value("${swift.http.connectionPoolSize:0}")
+    private int connectionPoolSize;
+
+    private final LongAdder tlsHandshakes = new LongAdder();
+    private final LongAdder requestsSent = new LongAdder();
+    private final LongAdder tlsRequestsSent = new LongAdder();
+    private final Queue<ExecutorService> executors = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Builds a new HttpClient with its own executor, which is shut down with this factory. Every
+     * exchange the client sends, including hedged and retried attempts, counts towards
+     * {@link #getRequestsSent()}. The connection pool settings are only applied if not already
+     * set and before the HttpClient implementation is loaded (see the class comment).
+     */
+    public HttpClient buildClient() throws NoSuchAlgorithmException {
+        setIfAbsent("jdk.httpclient.keepalive.timeout", String.valueOf(keepAliveTimeoutSeconds));
+        setIfAbsent("jdk.httpclient.connectionPoolSize", String.valueOf(connectionPoolSize));
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.valueOf(version))
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .sslContext(new CountingSslContext(SSLContext.getDefault(), tlsHandshakes));
+
+        ExecutorService executor;
+        switch (executorType) {
+            case "virtual":
+                executor = ThreadSupport.newPerTaskExecutor("swift-http");
+                break;
+            case "fixed":
+                executor = Executors.newFixedThreadPool(executorThreads, ThreadSupport.daemonThreadFactory("swift-http"));
+                break;
+            default:
+                // Leave the client's built-in executor in place
+                executor = null;
+                break;
+        }
+        if (executor != null) {
+            executors.add(executor);
+            builder.executor(executor);
+        }
+
+        logger.info("HttpClient configured: version={}, connectTimeout={}s, executor={}",
+                version, connectTimeoutSeconds, executorType);
+        return new CountingHttpClient(builder.build(), requestsSent, tlsRequestsSent);
+    }
+
+    /**
+     * Number of TLS handshakes so far, i.e. of TLS connections opened. Plain HTTP connections
+     * are not counted (see the class comment).
+     */
+    public long getTlsHandshakes() {
+        return tlsHandshakes.sum();
+    }
+
+    /**
+     * Number of requests sent so far, over any scheme.
+     */
+    public long getRequestsSent() {
+        return requestsSent.sum();
+    }
+
+    /**
+     * Number of https requests that did not need a new TLS connection, i.e. went over a pooled
+     * HTTP/1.1 connection or were multiplexed over an existing HTTP/2 connection. Plain HTTP
+     * requests are left out, since their connections are not counted.
+     */
+    public long getTlsConnectionsReused() {
+        return Math.max(0, tlsRequestsSent.sum() - getTlsHandshakes());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        long plainRequests = getRequestsSent() - tlsRequestsSent.sum();
+        logger.info("HttpClient stats: requests={}, tlsHandshakes={}, tlsReused={}, plainHttpRequests={} (connections not counted)",
+                getRequestsSent(), getTlsHandshakes(), getTlsConnectionsReused(), plainRequests);
+        ExecutorService executor;
+        while ((executor = executors.poll()) != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void setIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * HttpClient delegating to another client and counting the exchanges sent through it,
+     * in total and over https.
+     */
+    private static final class CountingHttpClient extends HttpClient {
+        private final HttpClient delegate;
+        private final LongAdder counter;
+        private final LongAdder tlsCounter;
+
+        CountingHttpClient(HttpClient delegate, LongAdder counter, LongAdder tlsCounter) {
+            this.delegate = delegate;
+            this.counter = counter;
+            this.tlsCounter = tlsCounter;
+        }
+
+        private void count(HttpRequest request) {
+            counter.increment();
+            if ("https".equalsIgnoreCase(request.uri().getScheme())) {
+                tlsCounter.increment();
+            }
+        }
+
+        @Override
+        public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+                throws IOException, InterruptedException {
+            count(request);
+            return delegate.send(request, handler);
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                                HttpResponse.BodyHandler<T> handler) {
+            count(request);
+            return delegate.sendAsync(request, handler);
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                                HttpResponse.BodyHandler<T> handler,
+                                                                HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+            count(request);
+            return delegate.sendAsync(request, handler, pushPromiseHandler);
+        }
+
+        @Override
+        public Optional<CookieHandler> cookieHandler() {
+            return delegate.cookieHandler();
+        }
+
+        @Override
+        public Optional<Duration> connectTimeout() {
+            return delegate.connectTimeout();
+        }
+
+        @Override
+        public Redirect followRedirects() {
+            return delegate.followRedirects();
+        }
+
+        @Override
+        public Optional<ProxySelector> proxy() {
+            return delegate.proxy();
+        }
+
+        @Override
+        public SSLContext sslContext() {
+            return delegate.sslContext();
+        }
+
+        @Override
+        public SSLParameters sslParameters() {
+            return delegate.sslParameters();
+        }
+
+        @Override
+        public Optional<Authenticator> authenticator() {
+            return delegate.authenticator();
+        }
+
+        @Override
+        public Version version() {
+            return delegate.version();
+        }
+
+        @Override
+        public Optional<Executor> executor() {
+            return delegate.executor();
+        }
+    }
+
+    /**
+     * SSLContext delegating to another context and counting created engines.
+     * HttpClient creates exactly one client SSLEngine per TLS connection, so each engine is one handshake.
+     */
+    private static final class CountingSslContext extends SSLContext {
+        CountingSslContext(SSLContext delegate, LongAdder counter) {
+            super(new CountingSpi(delegate, counter), delegate.getProvider(), delegate.getProtocol());
+        }
+    }
+
+    private static final class CountingSpi extends SSLContextSpi {
+        private final SSLContext delegate;
+        private final LongAdder counter;
+
+        CountingSpi(SSLContext delegate, LongAdder counter) {
+            this.delegate = delegate;
+            this.counter = counter;
+        }
+
+        /**
+         * Only reached if a caller takes the context back from {@link HttpClient#sslContext()} and calls
+         * {@link SSLContext#init}; HttpClient itself never does. The delegate is the already initialized
+         * JVM default context, which is shared and must not be re-keyed through this wrapper.
+         */
+        @Override
+        protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom sr) {
+            throw new UnsupportedOperationException("Delegate SSLContext is already initialized");
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return delegate.getSocketFactory();
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return delegate.getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            counter.increment();
+            return delegate.createSSLEngine();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            counter.increment();
+            return delegate.createSSLEngine(host, port);
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return delegate.getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return delegate.getClientSessionContext();
+        }
+
+        @Override
+        protected SSLParameters engineGetDefaultSSLParameters() {
+            return delegate.getDefaultSSLParameters();
+        }
+
+        @Override
+        protected SSLParameters engineGetSupportedSSLParameters() {
+            return delegate.getSupportedSSLParameters();
+        }
+    }
+}
@@ -6,12 +6,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.security.*;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
@@ -20,11 +27,15 @@ import java.time.Instant;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Component responsible for loading the P12 certificate, extracting the private key
  * and X5C header, and performing the JWT signing operation.
- * These security primitives are loaded once on startup.
+ * The security primitives are loaded on a background thread at startup (the first signing
+ * call waits for them) and reloaded whenever the .p12 file changes on disk (swift.p12Watch,
+ * off by default for signers created per institution).
  */
 @Component
 public class SwiftJwtTokenComponent {
@@ -46,26 +57,90 @@ public class SwiftJwtTokenComponent {
     // Inject only the base URL
     @Value("${swift.baseUrl}")
     private String baseUrl; 
-    
-    // Security primitives cached after initialization
-    private PrivateKey privateKey;
-    private X509Certificate leafCert;
-    private String x5cHeader;
-    private String subjectDn;
 
-    // Canonical Audience URL, constructed during initialization
-    private String canonicalAudienceUrl;
+    // Reload the key material when the .p12 file is replaced or modified. Each watching signer has
+    // its own watcher thread, so signers created per institution leave it off unless asked to.
+    @Value("${swift.p12Watch:true}")
+    private boolean watchP12File = true;
+
+    // Security primitives; completed by the background load and replaced as a whole on rotation
+    private volatile CompletableFuture<KeyMaterial> keyMaterial;
+
+    private volatile WatchService p12Watcher;
+
+
+    /**
+     * Used by Spring, which injects the @Value fields.
+     */
+    public SwiftJwtTokenComponent() {
+    }
 
+    /**
+     * Creates a signer for an additional credential outside of Spring, e.g. one per institution.
+     * Call {@link #initSecurityPrimitives()} before use. The .p12 file is not watched for
+     * rotation unless enabled with {@link #setWatchP12File(boolean)}; reload it with
+     * {@link #reloadSecurityPrimitives()}, or re-register the institution, instead.
+     */
+    public SwiftJwtTokenComponent(String p12File, String p12Password, String consumerKey, String scope, String baseUrl) {
+        this.p12File = p12File;
+        this.p12Password = p12Password;
+        this.consumerKey = consumerKey;
+        this.scope = scope;
+        this.baseUrl = baseUrl;
+        this.watchP12File = false;
+    }
+
+    /**
+     * Whether {@link #initSecurityPrimitives()} starts a thread watching the .p12 file for
+     * rotation. Must be set before that call.
+     */
+    public void setWatchP12File(boolean watchP12File) {
+        this.watchP12File = watchP12File;
+    }
 
+    /**
+     * Starts loading the security primitives on a background thread and returns immediately,
+     * so the .p12 parsing does not hold up application startup. {@link #buildSignedJwt(String)}
+     * waits for the load to finish; a failed load is rethrown from there.
+     */
     @PostConstruct
-    public void initSecurityPrimitives() throws Exception {
+    public void initSecurityPrimitives() {
         logger.info("Initializing Swift security primitives...");
-        
+        CompletableFuture<KeyMaterial> loading = new CompletableFuture<>();
+        this.keyMaterial = loading;
+        ThreadSupport.daemonThreadFactory("swift-jwt-init").newThread(() -> {
+            try {
+                loading.complete(loadKeyMaterial());
+            } catch (Throwable t) {
+                logger.error("Loading Swift security primitives failed: {}", t.getMessage());
+                loading.completeExceptionally(t);
+            }
+        }).start();
+        if (watchP12File) {
+            startWatching();
+        }
+    }
+
+    /**
+     * Waits until the security primitives are loaded; rethrows the load failure, if any.
+     */
+    public void awaitInitialized() throws Exception {
+        currentKeyMaterial();
+    }
+
+    /**
+     * Re-reads the .p12 file and swaps the key material in one step. Signing threads keep
+     * using the previous material until the swap and never wait for the reload.
+     * If the file cannot be loaded (e.g. it is still being written), the old material stays active.
+     */
+    public void reloadSecurityPrimitives() throws Exception {
+        KeyMaterial reloaded = loadKeyMaterial();
+        this.keyMaterial = CompletableFuture.completedFuture(reloaded);
+        logger.info("Reloaded Swift security primitives from {}. Subject DN: {}", p12File, reloaded.subjectDn);
+    }
+
+    private KeyMaterial loadKeyMaterial() throws Exception {
         KeyStore keyStore = loadKeyStore();
-        extractCertificateAndKey(keyStore);
-        
-        this.x5cHeader = extractX5c(this.leafCert);
-        this.subjectDn = extractSubject(this.leafCert);
         
         // Construct the full token URL using the injected base URL and the constant from the Service
         String tokenUrl = this.baseUrl + SwiftApiGatewayService.TOKEN_PATH;
@@ -73,10 +148,22 @@ public class SwiftJwtTokenComponent {
         // FIX: Derive the Audience (aud) claim directly from tokenUrl by removing the scheme.
         URI uri = new URI(tokenUrl);
         // Concatenate host and path, which is the required scheme-less format for 'aud'
-        this.canonicalAudienceUrl = uri.getHost() + uri.getPath(); 
+        String canonicalAudienceUrl = uri.getHost() + uri.getPath(); 
+
+        KeyMaterial material = extractCertificateAndKey(keyStore, canonicalAudienceUrl);
         
-        logger.info("JWT signing setup complete. Subject DN: {}", subjectDn);
+        logger.info("JWT signing setup complete. Subject DN: {}", material.subjectDn);
         logger.info("Canonical Audience (aud) set to: {}", canonicalAudienceUrl);
+        return material;
+    }
+
+    private KeyMaterial currentKeyMaterial() throws Exception {
+        try {
+            return keyMaterial.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof Exception ? (Exception) cause : new IllegalStateException(cause);
+        }
     }
     
     /**
@@ -85,39 +172,59 @@ public class SwiftJwtTokenComponent {
      * * @param tokenEndpoint The full URL of the token endpoint (used by the service for debug logging)
      */
     public String buildSignedJwt(String tokenEndpoint) throws Exception { 
+        KeyMaterial material = currentKeyMaterial();
         long now = Instant.now().getEpochSecond();
         
-        // 1. Header (contains x5c extracted during init)
-        String header = "{\"alg\":\"RS256\",\"typ\":\"JWT\",\"x5c\":[\"" + x5cHeader + "\"]}";
+        // 1. Header (contains x5c) is encoded once per key material
         
-        // 2. Payload (uses consumerKey, subjectDn, and the canonical Audience URL)
-        String payload = String.format(
-            "{\"iss\":\"%s\",\"sub\":\"%s\",\"aud\":\"%s\",\"jti\":\"%s\",\"iat\":%d,\"exp\":%d}",
-            consumerKey, subjectDn, this.canonicalAudienceUrl, // Uses the canonical DNS name URL without scheme
-            UUID.randomUUID().toString(), now, now + 300
-        );
-
-        String headerB64 = base64Url(header);
-        String payloadB64 = base64Url(payload);
-        String signingInput = headerB64 + "." + payloadB64;
-
-        // 3. Signature
-        Signature sig = Signature.getInstance("SHA256withRSA");
-        sig.initSign(privateKey);
-        sig.update(signingInput.getBytes(StandardCharsets.UTF_8));
+        // 2. Payload: constant prefix (iss, sub, canonical aud) plus the per-call claims
+        String payload = new StringBuilder(material.payloadPrefix.length() + 80)
+            .append(material.payloadPrefix)
+            .append(UUID.randomUUID())
+            .append("\",\"iat\":").append(now)
+            .append(",\"exp\":").append(now + 300)
+            .append('}')
+            .toString();
+
+        String signingInput = material.headerB64Prefix + base64Url(payload);
+
+        // 3. Signature, reusing this thread's initialized Signature (sign() resets it for the next use)
+        Signature sig = material.signatures.get();
+        byte[] signature;
+        try {
+            sig.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            signature = sig.sign();
+        } catch (SignatureException e) {
+            material.signatures.remove(); // Don't reuse a Signature left in an unknown state
+            throw e;
+        }
         
         // Directly apply Base64Url encoding to the raw signature bytes.
         String signatureB64 = Base64.getUrlEncoder().withoutPadding()
-                                    .encodeToString(sig.sign());
+                                    .encodeToString(signature);
 
-        return signingInput + "." + signatureB64;
+        return new StringBuilder(signingInput.length() + 1 + signatureB64.length())
+            .append(signingInput).append('.').append(signatureB64)
+            .toString();
     }
     
     public String getConsumerKey() { return consumerKey; }
     public String getP12Password() { return p12Password; }
     public String getP12File() { return p12File; } 
     public String getScope() { return scope; }
-    public X509Certificate getLeafCert() { return leafCert; }
+    public X509Certificate getLeafCert() throws Exception { return currentKeyMaterial().leafCert; }
+
+    @PreDestroy
+    public void close() {
+        WatchService watcher = p12Watcher;
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                logger.warn("Closing the .p12 file watcher failed: {}", e.getMessage());
+            }
+        }
+    }
     
     // --- Private Setup Methods ---
     
@@ -132,19 +239,21 @@ public class SwiftJwtTokenComponent {
         return keyStore;
     }
     
-    private void extractCertificateAndKey(KeyStore keyStore) throws UnrecoverableKeyException, KeyStoreException, NoSuchAlgorithmException {
+    private KeyMaterial extractCertificateAndKey(KeyStore keyStore, String canonicalAudienceUrl)
+            throws GeneralSecurityException {
         for (String alias : Collections.list(keyStore.aliases())) {
             if (keyStore.isKeyEntry(alias)) {
-                this.leafCert = (X509Certificate) keyStore.getCertificate(alias);
-                this.privateKey = (PrivateKey) keyStore.getKey(alias, p12Password.toCharArray());
-                return;
+                X509Certificate leafCert = (X509Certificate) keyStore.getCertificate(alias);
+                PrivateKey privateKey = (PrivateKey) keyStore.getKey(alias, p12Password.toCharArray());
+                return new KeyMaterial(privateKey, leafCert, extractX5c(leafCert), extractSubject(leafCert),
+                        consumerKey, canonicalAudienceUrl);
             }
         }
         logger.error("No private key entry found in .p12 file: {}", p12File);
         throw new RuntimeException("No private key entry found in .p12 file: " + p12File);
     }
     
-    private String extractX5c(X509Certificate cert) throws CertificateEncodingException {
+    private static String extractX5c(X509Certificate cert) throws CertificateEncodingException {
         String pem = pemEncode(cert);
         return pem
             .replace("-----BEGIN CERTIFICATE-----", "")
@@ -152,23 +261,99 @@ public class SwiftJwtTokenComponent {
             .replaceAll("\\s", "");
     }
 
-    private String extractSubject(X509Certificate cert) {
+    private static String extractSubject(X509Certificate cert) {
         // Calling getName() without arguments returns the DN string, which is then cleaned by the regex.
         String subject = cert.getSubjectX500Principal().getName();
         return subject.replaceAll("\\s*=\\s*", "=");
     }
     
+    // --- Certificate Rotation ---
+
+    private void startWatching() {
+        Path p12Path = Paths.get(p12File).toAbsolutePath();
+        Path directory = p12Path.getParent();
+        try {
+            WatchService watcher = directory.getFileSystem().newWatchService();
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            this.p12Watcher = watcher;
+            ThreadSupport.daemonThreadFactory("swift-p12-watch").newThread(() -> watch(watcher, p12Path)).start();
+        } catch (IOException e) {
+            logger.warn("Cannot watch {} for certificate rotation: {}", p12Path, e.getMessage());
+        }
+    }
+
+    private void watch(WatchService watcher, Path p12Path) {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= p12Path.getFileName().equals(event.context());
+                }
+                key.reset();
+                if (changed) {
+                    // Let the writer finish; a half-written file just fails to load and is retried on the next event
+                    Thread.sleep(200);
+                    try {
+                        reloadSecurityPrimitives();
+                    } catch (Exception e) {
+                        logger.warn("Reloading {} failed, keeping the current key material: {}", p12Path, e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+    
     // --- Helper Methods ---
     
-    private String base64Url(String input) {
+    private static String base64Url(String input) {
         return Base64.getUrlEncoder().withoutPadding()
             .encodeToString(input.getBytes(StandardCharsets.UTF_8));
     }
 
-    private String pemEncode(X509Certificate cert) throws CertificateEncodingException {
+    private static String pemEncode(X509Certificate cert) throws CertificateEncodingException {
         return "-----BEGIN CERTIFICATE-----\n" +
             Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.UTF_8))
                 .encodeToString(cert.getEncoded()) +
             "\n-----END CERTIFICATE-----\n";
     }
-}
\ No newline at end of file
+
+    /**
+     * Everything derived from one version of the .p12 file. Immutable, so a rotation is a
+     * single reference swap; each version keeps its own per-thread Signature objects, so a
+     * thread never signs with a Signature initialized for an older key.
+     */
+    private static final class KeyMaterial {
+        private final PrivateKey privateKey;
+        private final X509Certificate leafCert;
+        private final String subjectDn;
+        private final String headerB64Prefix; // base64url(header) + "."
+        private final String payloadPrefix;   // payload JSON up to the jti value
+        // Signature objects are not thread-safe; each thread keeps one initialized with the private key
+        private final ThreadLocal<Signature> signatures = ThreadLocal.withInitial(this::newSignature);
+
+        private KeyMaterial(PrivateKey privateKey, X509Certificate leafCert, String x5cHeader, String subjectDn,
+                            String consumerKey, String canonicalAudienceUrl) {
+            this.privateKey = privateKey;
+            this.leafCert = leafCert;
+            this.subjectDn = subjectDn;
+            // The header (including the large x5c) and the leading payload claims never change
+            String header = "{\"alg\":\"RS256\",\"typ\":\"JWT\",\"x5c\":[\"" + x5cHeader + "\"]}";
+            this.headerB64Prefix = base64Url(header) + ".";
+            this.payloadPrefix = "{\"iss\":\"" + consumerKey + "\",\"sub\":\"" + subjectDn
+                    + "\",\"aud\":\"" + canonicalAudienceUrl + "\",\"jti\":\"";
+        }
+
+        private Signature newSignature() {
+            try {
+                Signature sig = Signature.getInstance("SHA256withRSA");
+                sig.initSign(privateKey);
+                return sig;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialize SHA256withRSA signature", e);
+            }
+        }
+    }
+}
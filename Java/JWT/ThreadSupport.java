@@ -0,0 +1,47 @@
+package com.example.api;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates executors for the gateway client. Virtual threads are used when the running JVM
+ * provides them (Java 21+); on older runtimes a cached pool of named daemon threads is used instead.
+ */
+public final class ThreadSupport {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadSupport.class);
+
+    private ThreadSupport() {
+    }
+
+    /**
+     * Returns a thread-per-task executor, backed by virtual threads if available.
+     * @param namePrefix Prefix for platform thread names when falling back to a cached pool.
+     */
+    public static ExecutorService newPerTaskExecutor(String namePrefix) {
+        try {
+            // Looked up reflectively so the code still compiles and runs on Java 11/17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.debug("Virtual threads not available, using cached thread pool '{}'", namePrefix);
+            return Executors.newCachedThreadPool(daemonThreadFactory(namePrefix));
+        }
+    }
+
+    /**
+     * Thread factory producing daemon threads named {@code <namePrefix>-<n>}.
+     */
+    public static ThreadFactory daemonThreadFactory(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, namePrefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
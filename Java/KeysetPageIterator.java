@@ -0,0 +1,83 @@
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over a keyset-paginated result one page at a time: only the current page is held in
+ * memory, and the next one is fetched with the key of the last element seen.
+ *
+ * @param <T> the element type
+ */
+public class KeysetPageIterator<T> implements Iterator<T> {
+
+    /**
+     * Fetches up to {@code pageSize} elements with a key greater than {@code afterKey}, in key order.
+     */
+    @FunctionalInterface
+    public interface PageFetcher<T> {
+        List<T> fetch(long afterKey, int pageSize);
+    }
+
+    private final PageFetcher<T> fetcher;
+    private final ToLongFunction<T> keyOf;
+    private final int pageSize;
+
+    private List<T> page = List.of();
+    private int position;
+    private long lastKey;
+    private boolean lastPage;
+
+    /**
+     * @param fetcher Fetches one page.
+     * @param keyOf Extracts the key the pages are ordered by.
+     * @param pageSize Number of elements per page.
+     * @param startAfterKey Key before the first element, e.g. {@code Long.MIN_VALUE}.
+     */
+    public KeysetPageIterator(PageFetcher<T> fetcher, ToLongFunction<T> keyOf, int pageSize, long startAfterKey) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        this.fetcher = fetcher;
+        this.keyOf = keyOf;
+        this.pageSize = pageSize;
+        this.lastKey = startAfterKey;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (position < page.size()) {
+            return true;
+        }
+        if (lastPage) {
+            return false;
+        }
+        page = fetcher.fetch(lastKey, pageSize);
+        position = 0;
+        // A short page is the last one; saves a final empty query
+        lastPage = page.size() < pageSize;
+        return !page.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T element = page.get(position++);
+        lastKey = keyOf.applyAsLong(element);
+        return element;
+    }
+
+    /**
+     * Wraps the iterator in a sequential, lazily fetching stream.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.Arrays;
+
+/**
+ * Set of primitive {@code long} values, e.g. audit record IDs, using open addressing with
+ * linear probing. Unlike a {@code HashSet<Long>} it boxes nothing, so building and probing a set
+ * of tens of thousands of IDs costs a single {@code long[]}.
+ * <p>
+ * Not thread-safe.
+ */
+public class LongHashSet {
+
+    // 0 marks an empty slot; the value 0 itself is tracked separately
+    private long[] slots;
+    private boolean containsZero;
+    private int size;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize number of values to size the table for, to avoid rehashing
+     */
+    public LongHashSet(int expectedSize) {
+        slots = new long[LongHashing.capacityFor(expectedSize)];
+    }
+
+    /**
+     * Adds the value.
+     *
+     * @return {@code true} if the value was not yet in the set
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = slotOf(slots, value);
+        if (slots[slot] == value) {
+            return false;
+        }
+        slots[slot] = value;
+        if (++size > slots.length * LongHashing.MAX_LOAD) {
+            rehash();
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        return value == 0 ? containsZero : slots[slotOf(slots, value)] == value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the values in no particular order.
+     */
+    public long[] toArray() {
+        long[] values = new long[size];
+        int count = 0;
+        if (containsZero) {
+            values[count++] = 0;
+        }
+        for (long slot : slots) {
+            if (slot != 0) {
+                values[count++] = slot;
+            }
+        }
+        return values;
+    }
+
+    // Slot holding the value, or the empty slot where it belongs
+    private static int slotOf(long[] slots, long value) {
+        int mask = slots.length - 1;
+        int slot = LongHashing.slotOf(value, mask);
+        while (slots[slot] != 0 && slots[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] rehashed = new long[LongHashing.grow(slots.length)];
+        for (long value : slots) {
+            if (value != 0) {
+                rehashed[slotOf(rehashed, value)] = value;
+            }
+        }
+        slots = rehashed;
+    }
+
+    @Override
+    public String toString() {
+        long[] values = toArray();
+        Arrays.sort(values);
+        return Arrays.toString(values);
+    }
+}
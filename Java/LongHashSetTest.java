@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LongHashSetTest {
+
+    @Test
+    void extremes_areStoredLikeAnyOtherValue() {
+        LongHashSet set = new LongHashSet(0);
+        assertTrue(set.add(Long.MIN_VALUE));
+        assertTrue(set.add(Long.MAX_VALUE));
+        assertTrue(set.add(-1));
+        assertFalse(set.add(Long.MIN_VALUE));
+        assertFalse(set.contains(Long.MIN_VALUE + 1));
+        assertEquals("[" + Long.MIN_VALUE + ", -1, " + Long.MAX_VALUE + "]", set.toString());
+    }
+
+    @Test
+    void rehash_keepsEveryValue() {
+        LongHashSet set = new LongHashSet(); // 16 slots: 1000 IDs rehash it seven times
+        for (long id = 1; id <= 1_000; id++) {
+            assertTrue(set.add(id * 1_000_003));
+        }
+        assertEquals(1_000, set.size());
+        for (long id = 1; id <= 1_000; id++) {
+            assertTrue(set.contains(id * 1_000_003), "contains(" + id * 1_000_003 + ")");
+            assertFalse(set.contains(id * 1_000_003 + 1));
+        }
+        long[] values = set.toArray();
+        Arrays.sort(values);
+        assertEquals(1_000_003, values[0]);
+        assertEquals(1_000_003_000L, values[999]);
+    }
+
+    @Test
+    void zero_isAnOrdinaryValue() {
+        LongHashSet set = new LongHashSet(4);
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.add(-1));
+        assertTrue(set.contains(0));
+        assertEquals(2, set.size());
+        assertEquals("[-1, 0]", set.toString());
+    }
+}
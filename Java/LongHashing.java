@@ -0,0 +1,45 @@
+/**
+ * Sizing and hashing shared by the open-addressing tables keyed by {@code long}
+ * ({@link RoundedAmountIndex}, {@link LongHashSet}, {@link AhoCorasickMatcher}): power-of-two
+ * capacities filled to at most {@link #MAX_LOAD}, probed linearly from a Fibonacci hash.
+ */
+final class LongHashing {
+
+    static final float MAX_LOAD = 0.5f;
+    static final int MIN_CAPACITY = 16;
+    // Largest power of two an array can hold
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private LongHashing() {
+    }
+
+    /**
+     * Smallest power-of-two capacity that holds {@code expectedSize} keys without exceeding
+     * {@link #MAX_LOAD}, at least {@link #MIN_CAPACITY} and at most {@link #MAX_CAPACITY}.
+     */
+    static int capacityFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) Math.ceil(expectedSize / (double) MAX_LOAD));
+        return needed >= MAX_CAPACITY ? MAX_CAPACITY : Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    /**
+     * Capacity to rehash a full table of {@code capacity} slots into.
+     *
+     * @throws IllegalStateException if the table is already at {@link #MAX_CAPACITY}
+     */
+    static int grow(int capacity) {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Hash table cannot grow beyond " + MAX_CAPACITY + " slots");
+        }
+        return capacity * 2;
+    }
+
+    /**
+     * Home slot of {@code key} in a table of {@code mask + 1} slots. Fibonacci hashing spreads
+     * sequential keys such as record IDs or consecutive cent amounts over the whole table.
+     */
+    static int slotOf(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,776 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Message mix of the payment injection scripts in jmeter/: for each iteration, picks ISO or FIN,
+ * the message type, blocking or not, the ordering-FI role and the accounts, and fills the JMeter
+ * variables the samplers read. Same variables and ratio variables as improved_jsr223_script.java,
+ * or, with {@link Variant#SCRIPT2}, the behaviour of improved_jsr223_script2.java.
+ * <p>
+ * The ratios are read once and folded into one alias table over every combination of those
+ * choices, so an iteration costs a single table lookup instead of a chain of percentage rolls.
+ * Mixes are shared by everything with the same ratios, e.g. all threads of a thread group.
+ * Immutable and thread-safe; per-thread state lives in {@link Selector}.
+ */
+public final class MessageMix {
+
+    public static final String DEFAULT_BIC = "PDEFAULTXX";
+    public static final String ACCOUNT_SUFFIX = "0000";
+    public static final int MAX_ACCOUNT_NUMBER = 10; // Generated accounts end in 1..10
+    /** Variable naming the {@link Variant}; STANDARD if not set. */
+    public static final String VARIANT_VAR = "messageMixVariant";
+
+    /**
+     * Message types, with the ratio variable that weighs each within its ISO or FIN group.
+     */
+    public enum MessageType {
+        PACS_009(true, "pacs.009.001.08", "pacs009.xml", "messagePercentageISOpacs009", 50, null),
+        PACS_008(true, "pacs.008.001.08", "pacs008.xml", "messagePercentageISOpacs008", 45,
+                "orderingFiRolePercentageISOpacs008"),
+        PACS_004(true, "pacs.004.001.10", "pacs004.xml", "messagePercentageISOpacs004", 5, null),
+        MT_103(false, "103", "mt103.txt", "messagePercentageFINmt103", 5, "orderingFiRolePercentageMt103"),
+        MT_202(false, "202", "mt202.txt", "messagePercentageFINmt202", 45, null),
+        MT_202_COV(false, "202.COV", "mt202C.txt", "messagePercentageFINmt202C", 50, null);
+
+        private final boolean iso;
+        private final String requestType;
+        private final String messageFile;
+        private final String ratioVar;
+        private final int defaultRatio;
+        private final String orderingFiRatioVar; // null if the message has no ordering-FI role
+
+        MessageType(boolean iso, String requestType, String messageFile, String ratioVar, int defaultRatio,
+                    String orderingFiRatioVar) {
+            this.iso = iso;
+            this.requestType = requestType;
+            this.messageFile = messageFile;
+            this.ratioVar = ratioVar;
+            this.defaultRatio = defaultRatio;
+            this.orderingFiRatioVar = orderingFiRatioVar;
+        }
+
+        public boolean isIso() { return iso; }
+        public String getRequestType() { return requestType; }
+        public String getMessageFile() { return messageFile; }
+    }
+
+    /**
+     * Where the creditor and debtor accounts of a message come from.
+     */
+    public enum AccountSource {
+        /** The fixed accounts of the blocking or non-blocking terms. */
+        DEFAULT,
+        /** A generated account of the thread's own BIC, used as both creditor and debtor. */
+        OWN_BIC,
+        /** A generated account of the not-ordering-FI BIC, used as both creditor and debtor. */
+        NOT_ORDERING_FI_BIC
+    }
+
+    /**
+     * The two injection scripts differ in a few rules; a mix follows one of them.
+     */
+    public enum Variant {
+        /**
+         * improved_jsr223_script.java: message ratios that add up to less than 100 leave the rest
+         * of the roll selecting no message, generated accounts use the own or the not-ordering-FI
+         * BIC with equal chance and are numbered 1 to 10 ({@code PABCDEFGH00007}), invalid BICs
+         * are replaced by {@link #DEFAULT_BIC}, and FIN messages set alerting_message to "none".
+         */
+        STANDARD,
+        /**
+         * improved_jsr223_script2.java: the last message type of each group (pacs.004, MT 202 COV)
+         * takes whatever the other ratios leave, its own ratio is not used; generated accounts
+         * always use the own BIC, as its first 8 characters upper-cased, "0000" and a two-digit
+         * number ({@code PABCDEFG000007}), or FALLBACK000001 for a BIC shorter than 8 characters;
+         * a null or empty BIC selects nothing and writes no variables; other BICs are used as
+         * they are; FIN messages leave alerting_message untouched. Unlike in the script, ratios
+         * outside 0 to 100 fall back to their defaults, as in {@link #STANDARD}.
+         */
+        SCRIPT2
+    }
+
+    private static final Map<Ratios, MessageMix> MIXES = new ConcurrentHashMap<>();
+
+    private static final String[] ROLLS = new String[100];
+    static {
+        for (int i = 0; i < ROLLS.length; i++) {
+            ROLLS[i] = Integer.toString(i);
+        }
+    }
+
+    private static final Group ISO = new Group("", "noalert_",
+            new Terms("USD", "200.00", "91990100", "1234567111"),
+            new Terms("INR", "170.00", "99990100", "1234567111"),
+            new Terms("PLN", "1.00", "99990100", "1234567121"));
+    private static final Group FIN = new Group("fin_", "fin_noalert_",
+            new Terms("USD", "201,00", "91990100", "1234567111"),
+            new Terms("INR", "169,00", "99990100", "1234567111"),
+            new Terms("PLN", "2,00", "99990100", "1234567121"));
+
+    private static final Outcome[] OUTCOMES_BY_CODE = new Outcome[256];
+    static {
+        for (int code = 0; code < OUTCOMES_BY_CODE.length; code++) {
+            OUTCOMES_BY_CODE[code] = Outcome.decode(code);
+        }
+    }
+
+    private final Ratios ratios;
+    private final Outcome[] outcomes;
+    private final long[] weights;
+    private final int[] alias;
+    private final long[] threshold; // Probability of keeping the column's own outcome, scaled to 2^32
+
+    private MessageMix(Ratios ratios) {
+        this.ratios = ratios;
+        List<Outcome> outcomeList = new ArrayList<>();
+        List<Long> weightList = new ArrayList<>();
+        addOutcomes(outcomeList, weightList, true, ratios.finVsIso);
+        addOutcomes(outcomeList, weightList, false, 100 - ratios.finVsIso);
+        this.outcomes = outcomeList.toArray(new Outcome[0]);
+        this.weights = weightList.stream().mapToLong(Long::longValue).toArray();
+        this.alias = new int[outcomes.length];
+        this.threshold = new long[outcomes.length];
+        buildAliasTable();
+    }
+
+    /**
+     * Returns the mix for the ratio variables of {@code vars}: a JMeterVariables, or anything else
+     * with a public {@code get(String)}, such as a {@code Map<String, String>}. Missing, unparsable
+     * or out-of-range ratios fall back to their defaults. The variant is read from
+     * {@link #VARIANT_VAR}.
+     *
+     * @throws IllegalArgumentException If {@link #VARIANT_VAR} names no {@link Variant}.
+     */
+    public static MessageMix of(Object vars) {
+        return of(vars, null);
+    }
+
+    /**
+     * Like {@link #of(Object)}, but with the given variant whatever {@link #VARIANT_VAR} says.
+     */
+    public static MessageMix of(Object vars, Variant variant) {
+        return of(new Ratios(VarAccess.getter(vars), variant));
+    }
+
+    private static MessageMix of(Ratios ratios) {
+        return MIXES.computeIfAbsent(ratios, MessageMix::new);
+    }
+
+    /**
+     * Shortcut for {@code of(vars).newSelector(vars)}, the usual first-iteration call of a thread.
+     */
+    public static Selector selectorFor(Object vars) {
+        return of(vars).newSelector(vars);
+    }
+
+    /**
+     * Shortcut for {@code of(vars, variant).newSelector(vars)}.
+     */
+    public static Selector selectorFor(Object vars, Variant variant) {
+        return of(vars, variant).newSelector(vars);
+    }
+
+    /**
+     * Returns a selector that writes into {@code vars}: a JMeterVariables, or anything else with
+     * a public {@code get(String)} and {@code put(String, String)}. One per thread.
+     */
+    public Selector newSelector(Object vars) {
+        return new Selector(this, vars);
+    }
+
+    /**
+     * Draws an outcome from 64 uniformly random bits, e.g. {@code random.nextLong()}.
+     * The same bits always give the same outcome for the same ratios.
+     */
+    public Outcome draw(long randomBits) {
+        int column = (int) (((randomBits >>> 32) * outcomes.length) >>> 32);
+        return (randomBits & 0xFFFFFFFFL) < threshold[column] ? outcomes[column] : outcomes[alias[column]];
+    }
+
+    /**
+     * Maps the high 32 of 64 random bits to a {@code randomNumberFinOrIso} value for the outcome:
+     * below FinVsIsoRatio for ISO, from it up to 99 for FIN, as if it had been rolled.
+     */
+    public int roll(Outcome outcome, long randomBits) {
+        int from = outcome.isIso() ? 0 : ratios.finVsIso;
+        int width = outcome.isIso() ? ratios.finVsIso : 100 - ratios.finVsIso;
+        return from + (int) (((randomBits >>> 32) * width) >>> 32);
+    }
+
+    /**
+     * Maps the low 32 of 64 random bits to a 0-based generated account number, so the same value
+     * can also serve {@link #roll}.
+     */
+    public static int accountIndex(long randomBits) {
+        return (int) (((randomBits & 0xFFFFFFFFL) * MAX_ACCOUNT_NUMBER) >>> 32);
+    }
+
+    /**
+     * Probability of every outcome that can be drawn, summing to 1.
+     */
+    public Map<Outcome, Double> getProbabilities() {
+        long total = Arrays.stream(weights).sum();
+        Map<Outcome, Double> probabilities = new LinkedHashMap<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            probabilities.put(outcomes[i], weights[i] / (double) total);
+        }
+        return probabilities;
+    }
+
+    public Variant getVariant() {
+        return ratios.variant;
+    }
+
+    /**
+     * The effective ratio variables of this mix, defaults and {@link #VARIANT_VAR} included.
+     * Passing them to {@link #of(Object)} gives the same mix again.
+     */
+    public Map<String, String> getRatioVariables() {
+        return ratios.toVariables();
+    }
+
+    // Every ISO or FIN outcome weighted by the product of its percentages, all on the same scale
+    private void addOutcomes(List<Outcome> outcomeList, List<Long> weightList, boolean iso, int groupRatio) {
+        if (groupRatio == 0) {
+            return;
+        }
+        boolean script2 = ratios.variant == Variant.SCRIPT2;
+        MessageType last = null;
+        for (MessageType type : MessageType.values()) {
+            if (type.iso == iso) {
+                last = type;
+            }
+        }
+        int cumulative = 0;
+        for (MessageType type : MessageType.values()) {
+            if (type.iso != iso) {
+                continue;
+            }
+            // Cumulative percentages past 100 are never rolled, as in the scripts; in SCRIPT2 the
+            // last type is the final else branch and gets the rest of the roll
+            int messageRatio = script2 && type == last
+                    ? 100 - Math.min(cumulative, 100)
+                    : Math.min(cumulative + ratios.of(type), 100) - Math.min(cumulative, 100);
+            cumulative = script2 && type == last ? 100 : cumulative + ratios.of(type);
+            int orderingFi = type.orderingFiRatioVar == null ? 0 : ratios.orderingFiOf(type);
+            for (int blocking = 0; blocking < 2; blocking++) {
+                int blockingRatio = blocking == 1 ? ratios.blocking : 100 - ratios.blocking;
+                for (int role = 0; role < 2; role++) {
+                    int roleRatio = role == 1 ? orderingFi : 100 - orderingFi;
+                    for (AccountSource source : AccountSource.values()) {
+                        // Generated accounts pick either BIC with equal chance, hence the scale of 200;
+                        // SCRIPT2 always generates them for the own BIC
+                        int generated = !script2 ? ratios.accountGeneration
+                                : source == AccountSource.OWN_BIC ? 2 * ratios.accountGeneration : 0;
+                        int accountRatio = blocking == 0
+                                ? (source == AccountSource.DEFAULT ? 200 : 0)
+                                : (source == AccountSource.DEFAULT ? 2 * (100 - ratios.accountGeneration)
+                                : generated);
+                        long weight = (long) groupRatio * messageRatio * blockingRatio * roleRatio * accountRatio;
+                        if (weight > 0) {
+                            outcomeList.add(Outcome.of(iso, type, blocking == 1, role == 1, source));
+                            weightList.add(weight);
+                        }
+                    }
+                }
+            }
+        }
+        if (cumulative < 100) {
+            // The rest of the message roll selects nothing: only the no-alert variables are set
+            long weight = (long) groupRatio * (100 - cumulative) * 100 * 100 * 200;
+            outcomeList.add(Outcome.of(iso, null, false, false, AccountSource.DEFAULT));
+            weightList.add(weight);
+        }
+    }
+
+    // Vose's alias method: each column keeps its own outcome with probability threshold / 2^32
+    // and gives the rest to one alias, so a draw is one column pick and one comparison
+    private void buildAliasTable() {
+        int n = weights.length;
+        long total = Arrays.stream(weights).sum();
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0, largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * (double) n / total;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount];
+            int l = large[--largeCount];
+            threshold[s] = (long) (scaled[s] * (1L << 32));
+            alias[s] = l;
+            scaled[l] -= 1 - scaled[s];
+            if (scaled[l] < 1) {
+                small[smallCount++] = l;
+            } else {
+                large[largeCount++] = l;
+            }
+        }
+        // Whatever is left is 1 up to rounding
+        while (largeCount > 0) {
+            int l = large[--largeCount];
+            threshold[l] = 1L << 32;
+            alias[l] = l;
+        }
+        while (smallCount > 0) {
+            int s = small[--smallCount];
+            threshold[s] = 1L << 32;
+            alias[s] = s;
+        }
+    }
+
+    /**
+     * One combination of choices, with everything needed to fill the variables precomputed.
+     * Outcomes do not depend on the ratios: there is one instance per combination, identified by
+     * a one-byte {@link #getCode() code}.
+     */
+    public static final class Outcome {
+        // Code bits: 0-2 message type ordinal + 1 (0 for none), 3 ISO, 4 blocking, 5 ordering FI, 6-7 account source
+        private static final int ISO_BIT = 1 << 3;
+        private static final int BLOCKING_BIT = 1 << 4;
+        private static final int ORDERING_FI_BIT = 1 << 5;
+        private static final int ACCOUNT_SHIFT = 6;
+
+        private final int code;
+        private final Group group;
+        private final MessageType messageType;
+        private final boolean blocking;
+        private final boolean orderingFi;
+        private final AccountSource accountSource;
+        private final Terms terms;
+
+        private Outcome(int code, boolean iso, MessageType messageType, boolean blocking, boolean orderingFi,
+                        AccountSource accountSource) {
+            this.code = code;
+            this.group = iso ? ISO : FIN;
+            this.messageType = messageType;
+            this.blocking = blocking;
+            this.orderingFi = orderingFi;
+            this.accountSource = accountSource;
+            this.terms = blocking ? group.blocking : group.nonBlocking;
+        }
+
+        /**
+         * Returns the outcome with the given {@link #getCode() code}.
+         *
+         * @throws IllegalArgumentException If the code is not one of a valid combination.
+         */
+        public static Outcome ofCode(int code) {
+            Outcome outcome = code >= 0 && code < OUTCOMES_BY_CODE.length ? OUTCOMES_BY_CODE[code] : null;
+            if (outcome == null) {
+                throw new IllegalArgumentException("Not a message mix outcome: " + code);
+            }
+            return outcome;
+        }
+
+        private static Outcome of(boolean iso, MessageType messageType, boolean blocking, boolean orderingFi,
+                                  AccountSource accountSource) {
+            return ofCode((messageType == null ? 0 : messageType.ordinal() + 1) | (iso ? ISO_BIT : 0)
+                    | (blocking ? BLOCKING_BIT : 0) | (orderingFi ? ORDERING_FI_BIT : 0)
+                    | accountSource.ordinal() << ACCOUNT_SHIFT);
+        }
+
+        // The outcome a code stands for, or null if it combines choices that cannot go together
+        private static Outcome decode(int code) {
+            int typeBits = code & 7;
+            int accountBits = code >>> ACCOUNT_SHIFT;
+            if (typeBits > MessageType.values().length || accountBits >= AccountSource.values().length) {
+                return null;
+            }
+            MessageType type = typeBits == 0 ? null : MessageType.values()[typeBits - 1];
+            boolean iso = (code & ISO_BIT) != 0;
+            boolean blocking = (code & BLOCKING_BIT) != 0;
+            boolean orderingFi = (code & ORDERING_FI_BIT) != 0;
+            AccountSource source = AccountSource.values()[accountBits];
+            boolean valid = type == null
+                    ? !blocking && !orderingFi && source == AccountSource.DEFAULT
+                    : type.iso == iso && (!orderingFi || type.orderingFiRatioVar != null)
+                    && (blocking || source == AccountSource.DEFAULT);
+            return valid ? new Outcome(code, iso, type, blocking, orderingFi, source) : null;
+        }
+
+        /**
+         * Compact identifier of this combination, from 0 to 255.
+         */
+        public int getCode() { return code; }
+        public boolean isIso() { return group == ISO; }
+
+        /**
+         * The message to send, or null if the message ratios of the group add up to less than 100
+         * and the roll fell in the rest.
+         */
+        public MessageType getMessageType() { return messageType; }
+        public boolean isBlocking() { return blocking; }
+        public boolean isOrderingFi() { return orderingFi; }
+        public AccountSource getAccountSource() { return accountSource; }
+
+        @Override
+        public String toString() {
+            return (isIso() ? "ISO " : "FIN ") + (messageType == null ? "none" : messageType.requestType)
+                    + (blocking ? " BLOCKING" : " NON_BLOCKING") + (orderingFi ? " ordering-FI" : "")
+                    + (accountSource == AccountSource.DEFAULT ? "" : " " + accountSource);
+        }
+    }
+
+    /**
+     * Fills the variables of one JMeter thread, one {@link #select} per iteration. After the first
+     * iteration with a BIC, a selection allocates nothing: all values are precomputed strings.
+     * Not thread-safe.
+     */
+    public static final class Selector {
+        private final MessageMix mix;
+        private final boolean script2;
+        private final MethodHandle get; // (String) String, bound to the variables
+        private final MethodHandle put; // (String, String) void, bound to the variables
+
+        private String lastBic;
+        private String bic;
+        private String notOrderingFiBic;
+        private final String[][] generatedAccounts = new String[2][MAX_ACCOUNT_NUMBER];
+
+        private Selector(MessageMix mix, Object vars) {
+            this.mix = mix;
+            this.script2 = mix.ratios.variant == Variant.SCRIPT2;
+            this.get = VarAccess.getter(vars);
+            this.put = VarAccess.putter(vars);
+        }
+
+        /**
+         * Picks the next message for {@code bic} and writes its variables, overwriting those of
+         * the previous iteration.
+         *
+         * @param bic The thread's BIC; an invalid one is replaced by {@link #DEFAULT_BIC}, except in
+         *            {@link Variant#SCRIPT2}.
+         * @return The selected message type, or null if the roll selected none (see
+         *         {@link Outcome#getMessageType()}); only role and no-alert variables are set then.
+         *         In {@link Variant#SCRIPT2} also null, with no variables set, for a null or empty BIC.
+         */
+        public MessageType select(String bic) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Outcome outcome = mix.draw(random.nextLong());
+            long details = random.nextLong();
+            return apply(outcome, bic, mix.roll(outcome, details), accountIndex(details));
+        }
+
+        /**
+         * Writes the variables of a given outcome, e.g. one replayed from a pre-generated scenario.
+         *
+         * @param roll The value of {@code randomNumberFinOrIso}, from 0 to 99.
+         * @param accountIndex 0-based number of the generated account, if the outcome uses one.
+         */
+        public MessageType apply(Outcome outcome, String bic, int roll, int accountIndex) {
+            if (script2 && (bic == null || bic.isEmpty())) {
+                return null;
+            }
+            resolveBic(bic);
+            Group group = outcome.group;
+            put("bic_deciding_my_role", notOrderingFiBic);
+            put("no_alert_bic_deciding_my_role", notOrderingFiBic);
+            put("randomNumberFinOrIso", ROLLS[roll]);
+            group.noAlertKeys.write(this, group.noAlert, group.noAlert.creditor, group.noAlert.debtor);
+
+            MessageType type = outcome.messageType;
+            if (type == null) {
+                return null;
+            }
+            String creditor = outcome.terms.creditor;
+            String debtor = outcome.terms.debtor;
+            if (outcome.accountSource != AccountSource.DEFAULT) {
+                creditor = debtor = generatedAccount(outcome.accountSource, accountIndex);
+            }
+            if (group == ISO) {
+                put("alerting_message", get(outcome.blocking ? "pacs008_blocking" : "pacs008_nonblocking"));
+            } else if (!script2) {
+                put("alerting_message", "none");
+            }
+            group.keys.write(this, outcome.terms, creditor, debtor);
+            put(group.keys.messageFile, type.messageFile);
+            put(group.keys.requestType, type.requestType);
+            if (outcome.orderingFi) {
+                put("bic_deciding_my_role", this.bic);
+            }
+            return type;
+        }
+
+        private void resolveBic(String bic) {
+            if (this.bic != null && Objects.equals(bic, lastBic)) {
+                return;
+            }
+            lastBic = bic;
+            this.bic = script2 || isValidBic(bic) ? bic : DEFAULT_BIC;
+            this.notOrderingFiBic = "O" + this.bic.substring(1);
+            Arrays.fill(generatedAccounts[0], null);
+            Arrays.fill(generatedAccounts[1], null);
+        }
+
+        private String generatedAccount(AccountSource source, int index) {
+            int b = source == AccountSource.OWN_BIC ? 0 : 1;
+            String account = generatedAccounts[b][index];
+            if (account == null) {
+                account = script2 ? script2Account(index)
+                        : (b == 0 ? bic : notOrderingFiBic) + ACCOUNT_SUFFIX + (index + 1);
+                generatedAccounts[b][index] = account;
+            }
+            return account;
+        }
+
+        private String script2Account(int index) {
+            if (bic.length() < 8) {
+                return "FALLBACK000001";
+            }
+            return bic.substring(0, 8).toUpperCase(Locale.ROOT) + ACCOUNT_SUFFIX
+                    + (index < 9 ? "0" : "") + (index + 1);
+        }
+
+        private String get(String key) {
+            try {
+                return (String) get.invokeExact(key);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void put(String key, String value) {
+            try {
+                put.invokeExact(key, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // A capital letter followed by at least 7 capitals or digits
+    static boolean isValidBic(String bic) {
+        if (bic == null || bic.length() < 8 || bic.charAt(0) < 'A' || bic.charAt(0) > 'Z') {
+            return false;
+        }
+        for (int i = 1; i < bic.length(); i++) {
+            char c = bic.charAt(i);
+            if ((c < 'A' || c > 'Z') && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Currency, amount and default accounts of blocking, non-blocking or no-alert messages.
+     */
+    private static final class Terms {
+        private final String currency;
+        private final String amount;
+        private final String creditor;
+        private final String debtor;
+
+        private Terms(String currency, String amount, String creditor, String debtor) {
+            this.currency = currency;
+            this.amount = amount;
+            this.creditor = creditor;
+            this.debtor = debtor;
+        }
+    }
+
+    // Variable names for one prefix, concatenated once
+    private static final class Keys {
+        private final String currency;
+        private final String amount;
+        private final String creditor;
+        private final String debtor;
+        private final String messageFile;
+        private final String requestType;
+
+        private Keys(String prefix) {
+            this.currency = prefix + "currency";
+            this.amount = prefix + "amount";
+            this.creditor = prefix + "account_creditor";
+            this.debtor = prefix + "account_debtor";
+            this.messageFile = prefix + "message_file";
+            this.requestType = prefix + "request_type";
+        }
+
+        private void write(Selector selector, Terms terms, String creditorAccount, String debtorAccount) {
+            selector.put(currency, terms.currency);
+            selector.put(amount, terms.amount);
+            selector.put(creditor, creditorAccount);
+            selector.put(debtor, debtorAccount);
+        }
+    }
+
+    private static final class Group {
+        private final Keys keys;
+        private final Keys noAlertKeys;
+        private final Terms blocking;
+        private final Terms nonBlocking;
+        private final Terms noAlert;
+
+        private Group(String prefix, String noAlertPrefix, Terms blocking, Terms nonBlocking, Terms noAlert) {
+            this.keys = new Keys(prefix);
+            this.noAlertKeys = new Keys(noAlertPrefix);
+            this.blocking = blocking;
+            this.nonBlocking = nonBlocking;
+            this.noAlert = noAlert;
+        }
+    }
+
+    /**
+     * The ratio variables, as percentages. Equal ratios share one mix.
+     */
+    private static final class Ratios {
+        private final Variant variant;
+        private final int finVsIso;
+        private final int blocking;
+        private final int accountGeneration;
+        private final int[] messages = new int[MessageType.values().length];
+        private final int[] orderingFi = new int[MessageType.values().length];
+
+        private Ratios(MethodHandle get, Variant variant) {
+            String variantName = read(get, VARIANT_VAR);
+            this.variant = variant != null ? variant
+                    : variantName == null ? Variant.STANDARD : Variant.valueOf(variantName.trim());
+            this.finVsIso = percentage(get, "FinVsIsoRatio", 50);
+            this.blocking = percentage(get, "blockingAlertRatio", 50);
+            // improved_jsr223_script2.java called it generatedAccountRatio
+            String accountGenerationVar = read(get, "blockingAccountGenerationRatio") != null
+                    ? "blockingAccountGenerationRatio" : "generatedAccountRatio";
+            this.accountGeneration = percentage(get, accountGenerationVar, 30);
+            for (MessageType type : MessageType.values()) {
+                messages[type.ordinal()] = percentage(get, type.ratioVar, type.defaultRatio);
+                if (type.orderingFiRatioVar != null) {
+                    orderingFi[type.ordinal()] = percentage(get, type.orderingFiRatioVar, 30);
+                }
+            }
+        }
+
+        private int of(MessageType type) {
+            return messages[type.ordinal()];
+        }
+
+        private int orderingFiOf(MessageType type) {
+            return orderingFi[type.ordinal()];
+        }
+
+        private Map<String, String> toVariables() {
+            Map<String, String> variables = new LinkedHashMap<>();
+            variables.put(VARIANT_VAR, variant.name());
+            variables.put("FinVsIsoRatio", Integer.toString(finVsIso));
+            variables.put("blockingAlertRatio", Integer.toString(blocking));
+            variables.put("blockingAccountGenerationRatio", Integer.toString(accountGeneration));
+            for (MessageType type : MessageType.values()) {
+                variables.put(type.ratioVar, Integer.toString(of(type)));
+                if (type.orderingFiRatioVar != null) {
+                    variables.put(type.orderingFiRatioVar, Integer.toString(orderingFiOf(type)));
+                }
+            }
+            return variables;
+        }
+
+        private static int percentage(MethodHandle get, String key, int defaultValue) {
+            String value = read(get, key);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                int percentage = Integer.parseInt(value.trim());
+                return percentage < 0 || percentage > 100 ? defaultValue : percentage;
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+
+        private static String read(MethodHandle get, String key) {
+            try {
+                return (String) get.invokeExact(key);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Could not read " + key, e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Ratios)) {
+                return false;
+            }
+            Ratios other = (Ratios) o;
+            return variant == other.variant && finVsIso == other.finVsIso && blocking == other.blocking
+                    && accountGeneration == other.accountGeneration
+                    && Arrays.equals(messages, other.messages) && Arrays.equals(orderingFi, other.orderingFi);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(variant, finVsIso, blocking, accountGeneration, Arrays.hashCode(messages),
+                    Arrays.hashCode(orderingFi));
+        }
+    }
+
+    // get/put of JMeterVariables or a Map, found by name so that this class compiles without JMeter
+    private static final class VarAccess {
+
+        private static MethodHandle getter(Object vars) {
+            Method method = find(vars, "get", 1);
+            return bind(method, vars).asType(MethodType.methodType(String.class, String.class));
+        }
+
+        private static MethodHandle putter(Object vars) {
+            Method method = find(vars, "put", 2);
+            return bind(method, vars).asType(MethodType.methodType(void.class, String.class, String.class));
+        }
+
+        // On the first public type that declares it, so that e.g. Collections.unmodifiableMap(...) works too
+        private static Method find(Object vars, String name, int parameters) {
+            Deque<Class<?>> types = new ArrayDeque<>();
+            types.add(vars.getClass());
+            while (!types.isEmpty()) {
+                Class<?> candidate = types.poll();
+                if (Modifier.isPublic(candidate.getModifiers())) {
+                    for (Class<?> type : new Class<?>[] {String.class, Object.class}) {
+                        Class<?>[] parameterTypes = new Class<?>[parameters];
+                        Arrays.fill(parameterTypes, type);
+                        try {
+                            return candidate.getMethod(name, parameterTypes);
+                        } catch (NoSuchMethodException e) {
+                            // Try the next parameter type
+                        }
+                    }
+                }
+                if (candidate.getSuperclass() != null) {
+                    types.add(candidate.getSuperclass());
+                }
+                types.addAll(Arrays.asList(candidate.getInterfaces()));
+            }
+            throw new IllegalArgumentException(vars.getClass().getName() + " has no public " + name + " method");
+        }
+
+        private static MethodHandle bind(Method method, Object vars) {
+            try {
+                return MethodHandles.publicLookup().unreflect(method).bindTo(vars);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot access " + method, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The roll chains of improved_jsr223_script.java and improved_jsr223_script2.java, ported below as
+ * they were, are the reference for the probabilities of the {@link MessageMix} alias table.
+ */
+public class MessageMixTest {
+
+    // Multiples of 10, so the rolls 0..99 can be enumerated exactly by one value per decile
+    private static final Map<String, String> RATIOS = Map.ofEntries(
+            Map.entry("FinVsIsoRatio", "60"),
+            Map.entry("blockingAlertRatio", "30"),
+            Map.entry("blockingAccountGenerationRatio", "40"),
+            Map.entry("messagePercentageISOpacs009", "50"),
+            Map.entry("messagePercentageISOpacs008", "30"),
+            Map.entry("messagePercentageISOpacs004", "10"), // ISO adds up to 90: 10% selects nothing
+            Map.entry("messagePercentageFINmt103", "20"),
+            Map.entry("messagePercentageFINmt202", "50"),
+            Map.entry("messagePercentageFINmt202C", "40"), // FIN adds up to 110: MT 202 COV gets 30%
+            Map.entry("orderingFiRolePercentageISOpacs008", "70"),
+            Map.entry("orderingFiRolePercentageMt103", "20"));
+
+    @Test
+    void probabilities_matchTheScriptRollChain() {
+        assertProbabilitiesMatch(MessageMix.of(RATIOS, MessageMix.Variant.STANDARD), false);
+    }
+
+    @Test
+    void probabilities_matchTheScript2RollChain() {
+        assertProbabilitiesMatch(MessageMix.of(RATIOS, MessageMix.Variant.SCRIPT2), true);
+    }
+
+    @Test
+    void zeroAndFullRatios_leaveOnlyTheRemainingOutcomes() {
+        Map<String, String> isoOnly = Map.of("FinVsIsoRatio", "100", "messagePercentageISOpacs009", "0",
+                "messagePercentageISOpacs008", "0", "messagePercentageISOpacs004", "0");
+        // Nothing adds up to a message: only the "none" outcome, whatever the bits
+        MessageMix standard = MessageMix.of(isoOnly, MessageMix.Variant.STANDARD);
+        assertEquals(1, standard.getProbabilities().size());
+        for (long bits : new long[] {0, -1, Long.MIN_VALUE, Long.MAX_VALUE}) {
+            assertNull(standard.draw(bits).getMessageType());
+            assertTrue(standard.draw(bits).isIso());
+        }
+        // Script2 gives the whole roll to the last message of the group
+        MessageMix script2 = MessageMix.of(isoOnly, MessageMix.Variant.SCRIPT2);
+        script2.getProbabilities().keySet().forEach(outcome ->
+                assertEquals(MessageMix.MessageType.PACS_004, outcome.getMessageType()));
+
+        MessageMix finOnly = MessageMix.of(Map.of("FinVsIsoRatio", "0"));
+        finOnly.getProbabilities().keySet().forEach(outcome -> assertFalse(outcome.isIso()));
+    }
+
+    @Test
+    void roll_coversExactlyTheRangeOfTheGroup() {
+        MessageMix mix = MessageMix.of(RATIOS);
+        MessageMix.Outcome iso = outcome(mix, true, "pacs.009.001.08", false, MessageMix.AccountSource.DEFAULT);
+        MessageMix.Outcome fin = outcome(mix, false, "202", false, MessageMix.AccountSource.DEFAULT);
+        assertEquals(0, mix.roll(iso, 0));
+        assertEquals(59, mix.roll(iso, -1));
+        assertEquals(60, mix.roll(fin, 0));
+        assertEquals(99, mix.roll(fin, -1));
+        assertEquals(0, MessageMix.accountIndex(0));
+        assertEquals(MessageMix.MAX_ACCOUNT_NUMBER - 1, MessageMix.accountIndex(-1));
+    }
+
+    @Test
+    void invalidRatios_fallBackToTheirDefaults() {
+        MessageMix defaults = MessageMix.of(Map.of());
+        for (String invalid : new String[] {"101", "-1", "fifty", ""}) {
+            assertSame(defaults, MessageMix.of(Map.of("FinVsIsoRatio", invalid)), invalid);
+        }
+        assertEquals("70", MessageMix.of(Map.of("FinVsIsoRatio", " 70 ")).getRatioVariables().get("FinVsIsoRatio"));
+    }
+
+    @Test
+    void ratioVariables_giveTheSameMixAgain() {
+        for (MessageMix.Variant variant : MessageMix.Variant.values()) {
+            MessageMix mix = MessageMix.of(RATIOS, variant);
+            assertEquals(variant.name(), mix.getRatioVariables().get(MessageMix.VARIANT_VAR));
+            assertSame(mix, MessageMix.of(mix.getRatioVariables()));
+        }
+        assertSame(MessageMix.Variant.STANDARD, MessageMix.of(RATIOS).getVariant());
+    }
+
+    @Test
+    void generatedAccounts_followTheVariantFormat() {
+        Map<String, String> vars = new HashMap<>(RATIOS);
+        MessageMix standard = MessageMix.of(RATIOS, MessageMix.Variant.STANDARD);
+        MessageMix.Outcome ownBic = outcome(standard, true, "pacs.009.001.08", true, MessageMix.AccountSource.OWN_BIC);
+        MessageMix.Outcome otherBic = outcome(standard, true, "pacs.009.001.08", true,
+                MessageMix.AccountSource.NOT_ORDERING_FI_BIC);
+
+        MessageMix.Selector selector = standard.newSelector(vars);
+        selector.apply(ownBic, "PABCDEFGH", 42, 6);
+        assertEquals("PABCDEFGH00007", vars.get("account_creditor"));
+        assertEquals("PABCDEFGH00007", vars.get("account_debtor"));
+        selector.apply(otherBic, "PABCDEFGH", 42, 9);
+        assertEquals("OABCDEFGH000010", vars.get("account_creditor"));
+        selector.apply(ownBic, "bad bic", 42, 0);
+        assertEquals(MessageMix.DEFAULT_BIC + "00001", vars.get("account_creditor"));
+
+        MessageMix.Selector script2 = MessageMix.of(RATIOS, MessageMix.Variant.SCRIPT2).newSelector(vars);
+        script2.apply(ownBic, "pabcdefgh", 42, 6);
+        assertEquals("PABCDEFG000007", vars.get("account_creditor"));
+        assertEquals("Oabcdefgh", vars.get("bic_deciding_my_role"));
+        script2.apply(ownBic, "PABCDEFGH", 42, 9);
+        assertEquals("PABCDEFG000010", vars.get("account_debtor"));
+        script2.apply(ownBic, "PSHORT", 42, 3);
+        assertEquals("FALLBACK000001", vars.get("account_creditor"));
+    }
+
+    @Test
+    void script2_setsNothingWithoutABicAndLeavesFinAlertingMessage() {
+        Map<String, String> vars = new HashMap<>(RATIOS);
+        MessageMix mix = MessageMix.of(RATIOS, MessageMix.Variant.SCRIPT2);
+        MessageMix.Selector selector = mix.newSelector(vars);
+        int before = vars.size();
+        assertNull(selector.select(""));
+        assertNull(selector.select(null));
+        assertEquals(before, vars.size());
+
+        vars.put("alerting_message", "previous");
+        MessageMix.Outcome mt202 = outcome(mix, false, "202", false, MessageMix.AccountSource.DEFAULT);
+        assertEquals(MessageMix.MessageType.MT_202, selector.apply(mt202, "PABCDEFGH", 80, 0));
+        assertEquals("previous", vars.get("alerting_message"));
+        assertEquals("202", vars.get("fin_request_type"));
+
+        MessageMix.Selector standard = MessageMix.of(RATIOS, MessageMix.Variant.STANDARD).newSelector(vars);
+        standard.apply(mt202, "PABCDEFGH", 80, 0);
+        assertEquals("none", vars.get("alerting_message"));
+    }
+
+    private static void assertProbabilitiesMatch(MessageMix mix, boolean script2) {
+        Map<String, Double> expected = new HashMap<>();
+        int[] deciles = new int[10];
+        for (int i = 0; i < 10; i++) {
+            deciles[i] = i * 10 + 5;
+        }
+        double p = 1.0 / 200_000; // 10^5 roll combinations times the coin for the generated account's BIC
+        for (int finIso : deciles) {
+            for (int message : deciles) {
+                for (int blocking : deciles) {
+                    for (int orderingFi : deciles) {
+                        for (int account : deciles) {
+                            for (int coin = 0; coin < 2; coin++) {
+                                String key = script2
+                                        ? script2Chain(finIso, message, blocking, orderingFi, account)
+                                        : scriptChain(finIso, message, blocking, orderingFi, account, coin);
+                                expected.merge(key, p, Double::sum);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        Map<String, Double> actual = new HashMap<>();
+        mix.getProbabilities().forEach((outcome, probability) -> actual.merge(key(outcome), probability, Double::sum));
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((key, probability) ->
+                assertEquals(probability, actual.get(key), 1e-12, key));
+    }
+
+    // improved_jsr223_script.java as it was: rolls compared with the cumulative percentages
+    private static String scriptChain(int finIso, int messageRoll, int blockingRoll, int orderingFiRoll,
+                                      int accountRoll, int coin) {
+        boolean iso = finIso < ratio("FinVsIsoRatio");
+        boolean blocking = blockingRoll < ratio("blockingAlertRatio");
+        String[][] group = iso
+                ? new String[][] {{"pacs.009.001.08", "messagePercentageISOpacs009", null},
+                                  {"pacs.008.001.08", "messagePercentageISOpacs008", "orderingFiRolePercentageISOpacs008"},
+                                  {"pacs.004.001.10", "messagePercentageISOpacs004", null}}
+                : new String[][] {{"103", "messagePercentageFINmt103", "orderingFiRolePercentageMt103"},
+                                  {"202", "messagePercentageFINmt202", null},
+                                  {"202.COV", "messagePercentageFINmt202C", null}};
+        String[] selected = null;
+        int cumulative = 0;
+        for (String[] message : group) {
+            cumulative += ratio(message[1]);
+            if (messageRoll < cumulative) {
+                selected = message;
+                break;
+            }
+        }
+        if (selected == null) {
+            return key(iso, null, false, false, "DEFAULT");
+        }
+        String source = "DEFAULT";
+        if (blocking && accountRoll < ratio("blockingAccountGenerationRatio")) {
+            source = coin == 0 ? "OWN_BIC" : "NOT_ORDERING_FI_BIC";
+        }
+        boolean orderingFi = selected[2] != null && orderingFiRoll < ratio(selected[2]);
+        return key(iso, selected[0], blocking, orderingFi, source);
+    }
+
+    // improved_jsr223_script2.java as it was: if / else if / else, own-BIC accounts only
+    private static String script2Chain(int finIso, int messageType, int randomRatio, int randomOrderingFi,
+                                       int randomAccountGeneration) {
+        boolean iso = finIso < ratio("FinVsIsoRatio");
+        boolean blocking = randomRatio < ratio("blockingAlertRatio");
+        String source = blocking && randomAccountGeneration < ratio("blockingAccountGenerationRatio")
+                ? "OWN_BIC" : "DEFAULT";
+        if (iso) {
+            int pacs009 = ratio("messagePercentageISOpacs009");
+            int pacs008 = ratio("messagePercentageISOpacs008");
+            if (messageType < pacs009) {
+                return key(true, "pacs.009.001.08", blocking, false, source);
+            } else if (messageType < pacs009 + pacs008) {
+                return key(true, "pacs.008.001.08", blocking,
+                        randomOrderingFi < ratio("orderingFiRolePercentageISOpacs008"), source);
+            } else {
+                return key(true, "pacs.004.001.10", blocking, false, source);
+            }
+        }
+        int mt103 = ratio("messagePercentageFINmt103");
+        int mt202 = ratio("messagePercentageFINmt202");
+        if (messageType < mt103) {
+            return key(false, "103", blocking, randomOrderingFi < ratio("orderingFiRolePercentageMt103"), source);
+        } else if (messageType < mt103 + mt202) {
+            return key(false, "202", blocking, false, source);
+        } else {
+            return key(false, "202.COV", blocking, false, source);
+        }
+    }
+
+    private static int ratio(String name) {
+        return Integer.parseInt(RATIOS.get(name));
+    }
+
+    private static String key(MessageMix.Outcome outcome) {
+        return key(outcome.isIso(), outcome.getMessageType() == null ? null : outcome.getMessageType().getRequestType(),
+                outcome.isBlocking(), outcome.isOrderingFi(), outcome.getAccountSource().name());
+    }
+
+    private static String key(boolean iso, String requestType, boolean blocking, boolean orderingFi, String source) {
+        return (iso ? "ISO " : "FIN ") + requestType + (blocking ? " blocking" : "") + (orderingFi ? " orderingFi" : "")
+                + " " + source;
+    }
+
+    private static MessageMix.Outcome outcome(MessageMix mix, boolean iso, String requestType, boolean blocking,
+                                              MessageMix.AccountSource source) {
+        for (int code = 0; code < 256; code++) {
+            try {
+                MessageMix.Outcome outcome = MessageMix.Outcome.ofCode(code);
+                if (key(outcome).equals(key(iso, requestType, blocking, false, source.name()))) {
+                    return outcome;
+                }
+            } catch (IllegalArgumentException e) {
+                // Not a valid combination
+            }
+        }
+        throw new IllegalArgumentException("No outcome " + requestType);
+    }
+}
@@ -0,0 +1,288 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A message scenario generated ahead of time: every message of a load test drawn from a
+ * {@link MessageMix} with a fixed seed, so runs with the same seed and ratios send the same messages
+ * in the same order. Replayed through per-thread {@link Cursor}s over a memory-mapped file.
+ * <p>
+ * File layout, big-endian:
+ * <pre>
+ *   int    magic "MSC1"
+ *   int    offset of the first message
+ *   long   seed
+ *   long   number of messages
+ *   int    length of the ratio variables, then the variables as UTF-8 "name=value\n" lines
+ *   int[]  one record per message: outcome code, randomNumberFinOrIso, generated account index, 0
+ * </pre>
+ * An outcome code holds the message type, ISO or FIN, blocking flag, ordering-FI role and account
+ * source (see {@link MessageMix.Outcome#getCode()}); the BIC itself is the replaying thread's.
+ * <p>
+ * Immutable once opened; cursors share the mapping and only read it, so any number of threads
+ * replay without locking.
+ */
+public final class MessageScenario {
+
+    private static final int MAGIC = 0x4D534331; // "MSC1"
+    private static final int RECORD_BYTES = 4;
+    private static final int WRITE_CHUNK = 64 * 1024;
+
+    private final Path file;
+    private final MappedByteBuffer records;
+    private final int recordsOffset;
+    private final long seed;
+    private final long size;
+    private final Map<String, String> ratioVariables;
+
+    private MessageScenario(Path file, MappedByteBuffer records, int recordsOffset, long seed, long size,
+                            Map<String, String> ratioVariables) {
+        this.file = file;
+        this.records = records;
+        this.recordsOffset = recordsOffset;
+        this.seed = seed;
+        this.size = size;
+        this.ratioVariables = ratioVariables;
+    }
+
+    /**
+     * Draws {@code count} messages from {@code mix} with the given seed and writes them to {@code file}.
+     * The messages are those {@link MessageMix.Selector#select} would pick with a
+     * {@code SplittableRandom(seed)}; the same seed and ratios always give the same file, so remote
+     * engines can each generate their own copy instead of shipping one.
+     * <p>
+     * Written to a temporary file first and moved into place, so concurrent generators or readers
+     * never see a partial file.
+     */
+    public static void generate(Path file, MessageMix mix, long seed, long count) throws IOException {
+        byte[] ratios = encode(mix.getRatioVariables());
+        int recordsOffset = 4 + 4 + 8 + 8 + 4 + ratios.length;
+        if (count < 0 || count > (Integer.MAX_VALUE - recordsOffset) / RECORD_BYTES) {
+            throw new IllegalArgumentException("Message count out of range for one mapped file: " + count);
+        }
+        Path absolute = file.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(WRITE_CHUNK, recordsOffset));
+            buffer.putInt(MAGIC).putInt(recordsOffset).putLong(seed).putLong(count)
+                    .putInt(ratios.length).put(ratios);
+            SplittableRandom random = new SplittableRandom(seed);
+            for (long i = 0; i < count; i++) {
+                if (buffer.remaining() < RECORD_BYTES) {
+                    writeFully(channel, buffer);
+                }
+                MessageMix.Outcome outcome = mix.draw(random.nextLong());
+                long details = random.nextLong();
+                buffer.put((byte) outcome.getCode())
+                        .put((byte) mix.roll(outcome, details))
+                        .put((byte) MessageMix.accountIndex(details))
+                        .put((byte) 0);
+            }
+            writeFully(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a scenario file written by {@link #generate} and checks every record, so that replaying
+     * cannot fail on a corrupt one halfway through a test.
+     *
+     * @throws IOException If the file cannot be read or is not a complete, valid scenario file.
+     */
+    public static MessageScenario open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Not a message scenario file: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (length < 28 || mapped.getInt(0) != MAGIC) {
+                throw new IOException("Not a message scenario file: " + file);
+            }
+            int recordsOffset = mapped.getInt(4);
+            long seed = mapped.getLong(8);
+            long size = mapped.getLong(16);
+            int ratiosLength = mapped.getInt(24);
+            if (recordsOffset != 28 + ratiosLength || recordsOffset + size * RECORD_BYTES != length) {
+                throw new IOException("Truncated or corrupt message scenario file: " + file);
+            }
+            for (long i = 0; i < size; i++) {
+                int record = mapped.getInt(recordsOffset + (int) i * RECORD_BYTES);
+                if (!isValid(record)) {
+                    throw new IOException("Corrupt message " + i + " in message scenario file: " + file);
+                }
+            }
+            byte[] ratios = new byte[ratiosLength];
+            mapped.duplicate().position(28).get(ratios);
+            return new MessageScenario(file, mapped, recordsOffset, seed, size, decode(ratios));
+        }
+    }
+
+    /**
+     * Returns a cursor over slot {@code slot} of {@code slots}: messages {@code slot},
+     * {@code slot + slots}, {@code slot + 2 * slots} and so on, starting over at the end. Slots
+     * interleave rather than split the scenario into blocks, so all threads move through it
+     * together and the mix sent over time follows the scenario's order.
+     */
+    public Cursor cursor(int slot, int slots) {
+        if (slots <= 0 || slot < 0 || slot >= slots) {
+            throw new IllegalArgumentException("Slot " + slot + " of " + slots);
+        }
+        if (slot >= size) {
+            throw new IllegalArgumentException("Scenario of " + size + " messages has nothing for slot " + slot);
+        }
+        return new Cursor(slot, slots);
+    }
+
+    /**
+     * Cursor of one JMeter thread: thread {@code threadNum} of {@code threads} on engine
+     * {@code engine} of {@code engines}. Each (engine, thread) pair gets its own slot, so
+     * together the engines replay every message once per pass.
+     */
+    public Cursor cursor(int engine, int engines, int threadNum, int threads) {
+        if (engine < 0 || engine >= engines || threadNum < 0 || threadNum >= threads) {
+            throw new IllegalArgumentException("Thread " + threadNum + " of " + threads
+                    + " on engine " + engine + " of " + engines);
+        }
+        return cursor(engine * threads + threadNum, engines * threads);
+    }
+
+    /**
+     * The outcome of message {@code index}.
+     */
+    public MessageMix.Outcome getOutcome(long index) {
+        return MessageMix.Outcome.ofCode(record(index) >>> 24);
+    }
+
+    /**
+     * The {@code randomNumberFinOrIso} of message {@code index}.
+     */
+    public int getRoll(long index) {
+        return record(index) >>> 16 & 0xFF;
+    }
+
+    /**
+     * The 0-based generated account number of message {@code index}, if its outcome uses one.
+     */
+    public int getAccountIndex(long index) {
+        return record(index) >>> 8 & 0xFF;
+    }
+
+    private int record(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Message " + index + " of " + size);
+        }
+        return records.getInt(recordsOffset + (int) index * RECORD_BYTES);
+    }
+
+    public Path getFile() { return file; }
+    public long getSeed() { return seed; }
+    public long size() { return size; }
+
+    /**
+     * The ratio variables the scenario was generated with.
+     */
+    public Map<String, String> getRatioVariables() { return ratioVariables; }
+
+    /**
+     * The mix the scenario was generated from, e.g. for {@link MessageMix#newSelector}.
+     */
+    public MessageMix getMix() {
+        return MessageMix.of(ratioVariables);
+    }
+
+    // Known outcome code, roll 0-99, account index below MAX_ACCOUNT_NUMBER and the spare byte 0
+    private static boolean isValid(int record) {
+        try {
+            MessageMix.Outcome.ofCode(record >>> 24);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return (record >>> 16 & 0xFF) < 100 && (record >>> 8 & 0xFF) < MessageMix.MAX_ACCOUNT_NUMBER
+                && (record & 0xFF) == 0;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static byte[] encode(Map<String, String> variables) {
+        StringBuilder sb = new StringBuilder();
+        variables.forEach((name, value) -> sb.append(name).append('=').append(value).append('\n'));
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> decode(byte[] bytes) {
+        Map<String, String> variables = new LinkedHashMap<>();
+        for (String line : new String(bytes, StandardCharsets.UTF_8).split("\n")) {
+            int eq = line.indexOf('=');
+            if (eq > 0) {
+                variables.put(line.substring(0, eq), line.substring(eq + 1));
+            }
+        }
+        return Collections.unmodifiableMap(variables);
+    }
+
+    /**
+     * Position of one thread in the scenario. Only its own thread may use it; other cursors over
+     * the same scenario run independently.
+     */
+    public final class Cursor {
+        private final int slot;
+        private final int slots;
+        private long position;
+        private long replayed;
+
+        private Cursor(int slot, int slots) {
+            this.slot = slot;
+            this.slots = slots;
+            this.position = slot;
+        }
+
+        /**
+         * Writes the variables of the next message of this slot through {@code selector}, as
+         * {@link MessageMix.Selector#select} would have.
+         *
+         * @return The message type, or null if the scenario holds no message at this point (see
+         *         {@link MessageMix.Outcome#getMessageType()}).
+         */
+        public MessageMix.MessageType replayNext(MessageMix.Selector selector, String bic) {
+            int record = records.getInt(recordsOffset + (int) position * RECORD_BYTES);
+            position += slots;
+            if (position >= size) {
+                position = slot;
+            }
+            replayed++;
+            return selector.apply(MessageMix.Outcome.ofCode(record >>> 24), bic, record >>> 16 & 0xFF,
+                    record >>> 8 & 0xFF);
+        }
+
+        /**
+         * Index of the message the next {@link #replayNext} replays.
+         */
+        public long getPosition() { return position; }
+
+        /**
+         * Messages replayed so far, over all passes.
+         */
+        public long getReplayed() { return replayed; }
+    }
+}
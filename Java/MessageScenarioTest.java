@@ -0,0 +1,145 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MessageScenarioTest {
+
+    private static final Map<String, String> RATIOS = Map.of(
+            "FinVsIsoRatio", "60",
+            "blockingAlertRatio", "30",
+            "blockingAccountGenerationRatio", "40",
+            "messagePercentageISOpacs009", "50",
+            "messagePercentageISOpacs008", "30",
+            "messagePercentageISOpacs004", "10",
+            "orderingFiRolePercentageISOpacs008", "70");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void generateAndOpen_giveTheMixDraws() throws IOException {
+        for (MessageMix.Variant variant : MessageMix.Variant.values()) {
+            MessageMix mix = MessageMix.of(RATIOS, variant);
+            Path file = dir.resolve(variant + ".bin");
+            MessageScenario.generate(file, mix, 7, 1_000);
+
+            MessageScenario scenario = MessageScenario.open(file);
+            assertEquals(7, scenario.getSeed());
+            assertEquals(1_000, scenario.size());
+            assertEquals(mix.getRatioVariables(), scenario.getRatioVariables());
+            assertSame(mix, scenario.getMix());
+            SplittableRandom random = new SplittableRandom(7);
+            for (long i = 0; i < scenario.size(); i++) {
+                MessageMix.Outcome outcome = mix.draw(random.nextLong());
+                long details = random.nextLong();
+                assertSame(outcome, scenario.getOutcome(i), "message " + i);
+                assertEquals(mix.roll(outcome, details), scenario.getRoll(i), "message " + i);
+                assertEquals(MessageMix.accountIndex(details), scenario.getAccountIndex(i), "message " + i);
+            }
+        }
+    }
+
+    @Test
+    void generate_withTheSameSeedWritesTheSameFile() throws IOException {
+        MessageMix mix = MessageMix.of(RATIOS);
+        MessageScenario.generate(dir.resolve("a.bin"), mix, 11, 5_000);
+        MessageScenario.generate(dir.resolve("b.bin"), mix, 11, 5_000);
+        MessageScenario.generate(dir.resolve("c.bin"), mix, 12, 5_000);
+        byte[] a = Files.readAllBytes(dir.resolve("a.bin"));
+        assertArrayEquals(a, Files.readAllBytes(dir.resolve("b.bin")));
+        assertFalse(Arrays.equals(a, Files.readAllBytes(dir.resolve("c.bin"))));
+    }
+
+    @Test
+    void cursors_replayTheirInterleavedSlots() throws IOException {
+        Path file = dir.resolve("scenario.bin");
+        MessageScenario.generate(file, MessageMix.of(RATIOS), 3, 1_000);
+        MessageScenario scenario = MessageScenario.open(file);
+        MessageMix mix = scenario.getMix();
+        Map<String, String> replayed = new HashMap<>(RATIOS);
+        Map<String, String> applied = new HashMap<>(RATIOS);
+        MessageMix.Selector replaySelector = mix.newSelector(replayed);
+        MessageMix.Selector applySelector = mix.newSelector(applied);
+
+        for (int thread = 0; thread < 3; thread++) {
+            MessageScenario.Cursor cursor = scenario.cursor(1, 2, thread, 3);
+            int slot = 3 + thread; // of 6: engine 1 comes after the 3 threads of engine 0
+            int perPass = (1_000 - slot + 5) / 6;
+            for (int i = 0; i < 400; i++) {
+                long index = cursor.getPosition();
+                assertEquals(slot + 6L * (i % perPass), index, "thread " + thread + " message " + i);
+                assertEquals(applySelector.apply(scenario.getOutcome(index), "PABCDEFGH", scenario.getRoll(index),
+                        scenario.getAccountIndex(index)), cursor.replayNext(replaySelector, "PABCDEFGH"));
+                assertEquals(applied, replayed);
+            }
+            assertEquals(400, cursor.getReplayed());
+        }
+    }
+
+    @Test
+    void emptyAndSingleMessageScenarios_haveNoOrOneSlot() throws IOException {
+        Path file = dir.resolve("scenario.bin");
+        MessageScenario.generate(file, MessageMix.of(RATIOS), 1, 0);
+        MessageScenario empty = MessageScenario.open(file);
+        assertEquals(0, empty.size());
+        assertThrows(IllegalArgumentException.class, () -> empty.cursor(0, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> empty.getOutcome(0));
+
+        MessageScenario.generate(file, MessageMix.of(RATIOS), 1, 1);
+        MessageScenario single = MessageScenario.open(file);
+        MessageScenario.Cursor cursor = single.cursor(0, 3);
+        cursor.replayNext(single.getMix().newSelector(new HashMap<>()), "PABCDEFGH");
+        assertEquals(0, cursor.getPosition(), "Wraps around to its only message");
+        assertThrows(IllegalArgumentException.class, () -> single.cursor(1, 3));
+        assertThrows(IllegalArgumentException.class,
+                () -> MessageScenario.generate(file, MessageMix.of(RATIOS), 1, -1));
+    }
+
+    @Test
+    void open_rejectsCorruptFiles() throws IOException {
+        Path file = dir.resolve("scenario.bin");
+        MessageScenario.generate(file, MessageMix.of(RATIOS), 5, 100);
+        int recordsOffset;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            channel.read(header, 0);
+            recordsOffset = header.getInt(4);
+        }
+        byte[] valid = Files.readAllBytes(file);
+
+        assertThrows(IOException.class, () -> MessageScenario.open(write(file, valid, recordsOffset + 4 * 40, 0xFF)));
+        assertThrows(IOException.class, () -> MessageScenario.open(write(file, valid, recordsOffset + 4 * 41 + 1, 100)));
+        assertThrows(IOException.class, () -> MessageScenario.open(write(file, valid, recordsOffset + 4 * 99 + 2,
+                MessageMix.MAX_ACCOUNT_NUMBER)));
+        assertThrows(IOException.class, () -> MessageScenario.open(write(file, valid, recordsOffset + 3, 1)));
+        assertThrows(IOException.class, () -> MessageScenario.open(write(file, valid, 0, 0)));
+        Files.write(file, Arrays.copyOf(valid, valid.length - 4));
+        assertThrows(IOException.class, () -> MessageScenario.open(file));
+
+        Files.write(file, valid);
+        assertEquals(100, MessageScenario.open(file).size());
+    }
+
+    // The valid file with one byte replaced
+    private static Path write(Path file, byte[] valid, int offset, int value) throws IOException {
+        byte[] bytes = valid.clone();
+        bytes[offset] = (byte) value;
+        return Files.write(file, bytes);
+    }
+}
@@ -1,18 +1,23 @@
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ReportTest extends ItTest {
 
+    private static final Logger logger = LoggerFactory.getLogger(ReportTest.class);
+
     @Autowired
-    private AuditLogService auditLogService;
+    private AuditLogUtils auditLogUtils;
 
     private LocalDateTime beforeTestDate;
 
@@ -24,19 +29,18 @@ public class ReportTest extends ItTest {
 
     @Test
     void downloadReportTest() {
-        // Step 1: Retrieve audit log entries before action
-        List<AuditLog> initialAuditLogs = auditLogService.findEntriesAfter(beforeTestDate);
+        // Step 1: Tag this test's requests, so only its own audit entries are looked at
+        String correlationId = auditLogUtils.newCorrelationId();
 
         // Step 2: Perform the action (e.g., download report)
-        downloadReport(); // Implement the download action here
+        downloadReport(correlationId); // Implement the download action here
 
-        // Step 3: Retrieve audit log entries after action
-        List<AuditLog> finalAuditLogs = auditLogService.findEntriesAfter(beforeTestDate);
+        // Step 3: Wait until the asynchronous audit write is visible, instead of sleeping
+        auditLogUtils.awaitCorrelatedAuditLogEntries(correlationId, "Download Report", 1,
+                beforeTestDate, Duration.ofSeconds(30));
 
-        // Step 4: Filter out entries present in the initial list
-        List<AuditLog> newAuditLogs = finalAuditLogs.stream()
-                .filter(entry -> !initialAuditLogs.contains(entry))
-                .collect(Collectors.toList());
+        // Step 4: Retrieve the audit log entries of this test; concurrent tests' entries are filtered out
+        List<AuditLog> newAuditLogs = auditLogUtils.getCorrelatedAuditLogs(correlationId, beforeTestDate);
 
         // Step 5: Assert that only one new entry is present
         assertEquals(1, newAuditLogs.size(), "Expected only one new audit log entry");
@@ -47,75 +51,32 @@ public class ReportTest extends ItTest {
         assertTrue(newEntry.getDetails().contains("Report downloaded successfully"), "Audit log entry details do not match expected content");
     }
 
-    private void downloadReport() {
-        // Logic to perform the report download action goes here
-    }
-}
-
-
-import org.springframework.beans.factory.annotation.Autowired;
-import java.time.LocalDateTime;
-import java.util.List;
-import java.util.stream.Collectors;
-
-public class AuditLogUtils {
-
-    @Autowired
-    private AuditLogService auditLogService;
-
-    /**
-     * Retrieves all audit log entries after a given date.
-     *
-     * @param date The date after which to retrieve the audit log entries.
-     * @return A list of audit log entries.
-     */
-    public List<AuditLog> getAuditLogsAfter(LocalDateTime date) {
-        return auditLogService.findEntriesAfter(date);
-    }
-
     /**
-     * Filters out old audit log entries from the final list based on the initial list.
-     *
-     * @param initialLogs The list of audit log entries before the action.
-     * @param finalLogs The list of audit log entries after the action.
-     * @return A list of new audit log entries.
+     * Benchmark mode, off by default: run with -Daudit.benchmark=true to measure how long the
+     * "Download Report" audit entry takes to become visible, under increasing download rates.
+     * Rates and step size are read from audit.benchmark.startRate, maxRate, requestsPerStep and p99LimitMs.
      */
-    public List<AuditLog> getNewAuditLogs(List<AuditLog> initialLogs, List<AuditLog> finalLogs) {
-        return finalLogs.stream()
-                .filter(entry -> !initialLogs.contains(entry))
-                .collect(Collectors.toList());
+    @Test
+    @EnabledIfSystemProperty(named = "audit.benchmark", matches = "true")
+    void downloadReportAuditPropagationBenchmark() throws InterruptedException {
+        Duration p99Limit = Duration.ofMillis(Long.getLong("audit.benchmark.p99LimitMs", 2000));
+        AuditPropagationBenchmark benchmark = new AuditPropagationBenchmark(auditLogUtils, "Download Report",
+                this::downloadReport);
+
+        List<AuditPropagationBenchmark.Result> steps = benchmark.findMaxSustainableRate(
+                Integer.getInteger("audit.benchmark.requestsPerStep", 200),
+                Double.parseDouble(System.getProperty("audit.benchmark.startRate", "5")),
+                Double.parseDouble(System.getProperty("audit.benchmark.maxRate", "500")),
+                p99Limit, Duration.ofSeconds(30));
+
+        steps.forEach(step -> logger.info("Audit propagation: {}", step));
+        logger.info("Max sustainable download rate: {}/s (p99 <= {}ms)",
+                String.format("%.1f", AuditPropagationBenchmark.maxSustainableRate(steps, p99Limit)), p99Limit.toMillis());
+        assertTrue(steps.get(0).isSustainable(p99Limit), "Audit propagation too slow even at the start rate: " + steps.get(0));
     }
 
-    /**
-     * Verifies that only one new audit log entry is present and matches expected action and details.
-     *
-     * @param newAuditLogs The list of new audit log entries.
-     * @param expectedAction The expected action of the new audit log entry.
-     * @param expectedDetails A part of the expected details to verify.
-     */
-    public void verifySingleAuditLogEntry(List<AuditLog> newAuditLogs, String expectedAction, String expectedDetails) {
-        if (newAuditLogs.size() != 1) {
-            throw new AssertionError("Expected only one new audit log entry, but found " + newAuditLogs.size());
-        }
-        AuditLog newEntry = newAuditLogs.get(0);
-        if (!newEntry.getAction().equals(expectedAction)) {
-            throw new AssertionError("Audit log entry action does not match expected value. Expected: " 
-                    + expectedAction + ", but was: " + newEntry.getAction());
-        }
-        if (!newEntry.getDetails().contains(expectedDetails)) {
-            throw new AssertionError("Audit log entry details do not match expected content. Expected to contain: " 
-                    + expectedDetails);
-        }
+    private void downloadReport(String correlationId) {
+        // Logic to perform the report download action goes here, sending correlationId
+        // (e.g. as X-Correlation-ID header) so it ends up in the audit entry details
     }
 }
-    /**
-     * Extracts auditRecordIds from a list of AuditLog entries and returns them as an array.
-     *
-     * @param auditLogs The list of AuditLog entries.
-     * @return An array of auditRecordIds.
-     */
-    public Long[] extractAuditRecordIds(List<AuditLog> auditLogs) {
-        return auditLogs.stream()
-                .map(AuditLog::getAuditRecordId)
-                .toArray(Long[]::new);
-    }
\ No newline at end of file
@@ -0,0 +1,241 @@
+import java.util.Arrays;
+
+/**
+ * Index of records by amount rounded to a fixed precision, with the same HALF_UP semantics as
+ * {@link RoundingComparator}. Answers "which records have the same amount as X at 2 decimals"
+ * in constant time, and amount ranges through a sorted view of the distinct rounded amounts.
+ * <p>
+ * Records are identified by an {@code int} chosen by the caller, e.g. a row number. Rounded
+ * amounts are kept as {@code long} keys (the amount scaled by 10^precision) in an open-addressing
+ * hash table; the record ids of each key form a chain through primitive arrays, so nothing is boxed.
+ * Records can be added at any time; the sorted view is brought up to date on the next range query
+ * by sorting only the keys added since the previous one.
+ * <p>
+ * Not thread-safe: one thread adds records, or access is synchronized externally.
+ */
+public class RoundedAmountIndex {
+
+    private static final int[] NO_RECORDS = new int[0];
+
+    private final RoundingComparator comparator;
+
+    // Hash table of distinct rounded amounts; head/tail hold entry index + 1, so 0 marks an empty slot
+    private long[] slotKeys;
+    private int[] slotHeads;
+    private int[] slotTails;
+    private int[] slotCounts;
+    private int distinctAmounts;
+
+    // Record chains; next holds entry index + 1, 0 ends the chain
+    private int[] entryRecords;
+    private int[] entryNext;
+    private int size;
+
+    // Sorted view of the distinct amounts, plus the amounts added since it was last sorted
+    private long[] sortedKeys = new long[0];
+    private long[] pendingKeys = new long[16];
+    private int pendingCount;
+
+    /**
+     * @param precision the number of decimal places to which the amounts are rounded
+     */
+    public RoundedAmountIndex(int precision) {
+        this(precision, 16);
+    }
+
+    /**
+     * @param expectedRecords number of records to size the tables for, to avoid rehashing
+     */
+    public RoundedAmountIndex(int precision, int expectedRecords) {
+        this.comparator = new RoundingComparator(precision);
+        int capacity = LongHashing.capacityFor(expectedRecords);
+        this.slotKeys = new long[capacity];
+        this.slotHeads = new int[capacity];
+        this.slotTails = new int[capacity];
+        this.slotCounts = new int[capacity];
+        this.entryRecords = new int[Math.max(16, expectedRecords)];
+        this.entryNext = new int[entryRecords.length];
+    }
+
+    /**
+     * Adds a record under its rounded amount.
+     *
+     * @throws ArithmeticException if the rounded amount scaled by 10^precision does not fit in a {@code long}
+     */
+    public void add(double amount, int recordId) {
+        addKey(comparator.toScaledLong(amount), recordId);
+    }
+
+    /**
+     * @see #add(double, int)
+     */
+    public void add(Number amount, int recordId) {
+        addKey(comparator.toScaledLong(amount), recordId);
+    }
+
+    /**
+     * Returns the records whose amount rounds to the same value as {@code amount}, in insertion order.
+     */
+    public int[] lookup(double amount) {
+        return recordsOf(find(comparator.toScaledLong(amount)));
+    }
+
+    /**
+     * @see #lookup(double)
+     */
+    public int[] lookup(Number amount) {
+        return recordsOf(find(comparator.toScaledLong(amount)));
+    }
+
+    /**
+     * Number of records whose amount rounds to the same value as {@code amount}.
+     */
+    public int count(double amount) {
+        int slot = find(comparator.toScaledLong(amount));
+        return slot < 0 ? 0 : slotCounts[slot];
+    }
+
+    /**
+     * Returns the records whose rounded amount lies between the rounded bounds (both inclusive),
+     * ordered by amount and, for equal amounts, by insertion.
+     */
+    public int[] range(Number from, Number to) {
+        long fromKey = comparator.toScaledLong(from);
+        long toKey = comparator.toScaledLong(to);
+        long[] sorted = sortedKeys();
+        int first = Arrays.binarySearch(sorted, fromKey);
+        if (first < 0) {
+            first = -first - 1;
+        }
+        int total = 0;
+        int last = first;
+        while (last < sorted.length && sorted[last] <= toKey) {
+            total += slotCounts[find(sorted[last++])];
+        }
+        int[] records = new int[total];
+        int count = 0;
+        for (int i = first; i < last; i++) {
+            for (int entry = slotHeads[find(sorted[i])]; entry != 0; entry = entryNext[entry - 1]) {
+                records[count++] = entryRecords[entry - 1];
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Number of records in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of distinct rounded amounts in the index.
+     */
+    public int distinctAmounts() {
+        return distinctAmounts;
+    }
+
+    // --- Hash table ---
+
+    private void addKey(long key, int recordId) {
+        if (size == entryRecords.length) {
+            entryRecords = Arrays.copyOf(entryRecords, size * 2);
+            entryNext = Arrays.copyOf(entryNext, size * 2);
+        }
+        entryRecords[size] = recordId;
+        int entry = ++size; // Stored as index + 1
+
+        int slot = slotOf(key);
+        if (slotHeads[slot] == 0) {
+            slotKeys[slot] = key;
+            slotHeads[slot] = entry;
+            addPending(key);
+            if (++distinctAmounts > slotKeys.length * LongHashing.MAX_LOAD) {
+                rehash();
+                slot = find(key);
+            }
+        } else {
+            entryNext[slotTails[slot] - 1] = entry;
+        }
+        slotTails[slot] = entry;
+        slotCounts[slot]++;
+    }
+
+    // Slot holding the key, or -1
+    private int find(long key) {
+        int slot = slotOf(key);
+        return slotHeads[slot] == 0 ? -1 : slot;
+    }
+
+    // Slot holding the key, or the empty slot where it belongs
+    private int slotOf(long key) {
+        int mask = slotKeys.length - 1;
+        int slot = LongHashing.slotOf(key, mask);
+        while (slotHeads[slot] != 0 && slotKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = slotKeys;
+        int[] oldHeads = slotHeads;
+        int[] oldTails = slotTails;
+        int[] oldCounts = slotCounts;
+        int capacity = LongHashing.grow(oldKeys.length);
+        slotKeys = new long[capacity];
+        slotHeads = new int[capacity];
+        slotTails = new int[capacity];
+        slotCounts = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] != 0) {
+                int slot = slotOf(oldKeys[i]);
+                slotKeys[slot] = oldKeys[i];
+                slotHeads[slot] = oldHeads[i];
+                slotTails[slot] = oldTails[i];
+                slotCounts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private int[] recordsOf(int slot) {
+        if (slot < 0) {
+            return NO_RECORDS;
+        }
+        int[] records = new int[slotCounts[slot]];
+        int count = 0;
+        for (int entry = slotHeads[slot]; entry != 0; entry = entryNext[entry - 1]) {
+            records[count++] = entryRecords[entry - 1];
+        }
+        return records;
+    }
+
+    // --- Sorted view ---
+
+    private void addPending(long key) {
+        if (pendingCount == pendingKeys.length) {
+            pendingKeys = Arrays.copyOf(pendingKeys, pendingCount * 2);
+        }
+        pendingKeys[pendingCount++] = key;
+    }
+
+    // Merges the keys added since the last range query into the sorted view
+    private long[] sortedKeys() {
+        if (pendingCount == 0) {
+            return sortedKeys;
+        }
+        long[] pending = Arrays.copyOf(pendingKeys, pendingCount);
+        Arrays.parallelSort(pending);
+        long[] merged = new long[sortedKeys.length + pending.length];
+        int i = 0, j = 0, k = 0;
+        while (i < sortedKeys.length && j < pending.length) {
+            merged[k++] = sortedKeys[i] <= pending[j] ? sortedKeys[i++] : pending[j++];
+        }
+        System.arraycopy(sortedKeys, i, merged, k, sortedKeys.length - i);
+        System.arraycopy(pending, j, merged, k + sortedKeys.length - i, pending.length - j);
+        sortedKeys = merged;
+        pendingCount = 0;
+        return merged;
+    }
+}
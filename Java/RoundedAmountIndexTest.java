@@ -0,0 +1,77 @@
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RoundedAmountIndexTest {
+
+    @Test
+    void rehash_keepsEveryChainInInsertionOrder() {
+        RoundedAmountIndex index = new RoundedAmountIndex(2, 1);
+        for (int recordId = 0; recordId < 100; recordId++) {
+            index.add(recordId % 40 / 100.0, recordId); // 40 amounts: rehashes from 16 to 128 slots
+        }
+        assertEquals(100, index.size());
+        assertEquals(40, index.distinctAmounts());
+        assertArrayEquals(new int[] {7, 47, 87}, index.lookup(0.07));
+        assertArrayEquals(new int[] {39, 79}, index.lookup(new BigDecimal("0.39")));
+        assertEquals(0, index.count(0.40));
+    }
+
+    @Test
+    void extremeKeys_areIndexedLikeAnyOther() {
+        RoundedAmountIndex index = new RoundedAmountIndex(0);
+        index.add(Long.valueOf(Long.MIN_VALUE), 1);
+        index.add(Long.valueOf(Long.MAX_VALUE), 2);
+        index.add(0L, 3);
+        index.add(-0.4, 4);
+        assertArrayEquals(new int[] {1}, index.lookup(Long.valueOf(Long.MIN_VALUE)));
+        assertArrayEquals(new int[] {2}, index.lookup(Long.valueOf(Long.MAX_VALUE)));
+        assertArrayEquals(new int[] {3, 4}, index.lookup(0.0));
+        assertArrayEquals(new int[] {1, 3, 4, 2}, index.range(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void range_seesAmountsAddedAfterThePreviousQuery() {
+        RoundedAmountIndex index = new RoundedAmountIndex(2);
+        assertArrayEquals(new int[0], index.range(-1, 1));
+        index.add(0.5, 1);
+        index.add(-0.5, 2);
+        assertArrayEquals(new int[] {2, 1}, index.range(-1, 1));
+        index.add(0.0, 3);
+        index.add(0.5, 4);
+        assertArrayEquals(new int[] {2, 3, 1, 4}, index.range(-1, 1));
+        assertArrayEquals(new int[] {3}, index.range(0, 0.004));
+        assertArrayEquals(new int[0], index.range(1, -1));
+    }
+
+    @Test
+    void lookup_usesHalfUpRoundingOfTheDecimalValue() {
+        RoundedAmountIndex index = new RoundedAmountIndex(2, 4);
+        index.add(1.005, 1); // 1.01
+        index.add(1.004, 2); // 1.00
+        index.add(new BigDecimal("1.0050"), 3);
+        index.add(0L, 4);
+        assertArrayEquals(new int[] {1, 3}, index.lookup(1.01));
+        assertArrayEquals(new int[] {2}, index.lookup(0.995));
+        assertArrayEquals(new int[] {4}, index.lookup(-0.004));
+        assertArrayEquals(new int[0], index.lookup(2.0));
+        assertArrayEquals(new int[] {4, 2, 1, 3}, index.range(-1, 1.01));
+    }
+
+    @Test
+    void capacityFor_isAPowerOfTwoClampedToTheMaximum() {
+        assertEquals(16, LongHashing.capacityFor(0));
+        assertEquals(16, LongHashing.capacityFor(-1));
+        assertEquals(16, LongHashing.capacityFor(8));
+        assertEquals(32, LongHashing.capacityFor(9));
+        assertEquals(1 << 21, LongHashing.capacityFor(1 << 20));
+        assertEquals(1 << 30, LongHashing.capacityFor(1 << 29));
+        assertEquals(1 << 30, LongHashing.capacityFor(Integer.MAX_VALUE));
+        assertEquals(1 << 30, LongHashing.grow(1 << 29));
+        assertThrows(IllegalStateException.class, () -> LongHashing.grow(1 << 30));
+    }
+}
@@ -0,0 +1,201 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk sort, dedupe and grouping of amounts by their value rounded to a fixed precision,
+ * with the same HALF_UP semantics as {@link RoundingComparator}.
+ * <p>
+ * Sorting a collection with {@link RoundingComparator} rounds every element again on each of its
+ * O(n log n) comparisons. These operations round each element once into a {@code long} key
+ * (the rounded value scaled by 10^precision), sort the keys with {@link Arrays#parallelSort(long[])}
+ * and then hand back the original elements in rounded order. Equal rounded values keep their
+ * original relative order.
+ * <p>
+ * All operations throw {@link ArithmeticException} if a rounded value scaled by 10^precision
+ * does not fit in a {@code long}.
+ */
+public class RoundedAmounts {
+
+    private final RoundingComparator comparator;
+
+    /**
+     * @param precision the number of decimal places to which the amounts are rounded
+     */
+    public RoundedAmounts(int precision) {
+        this.comparator = new RoundingComparator(precision);
+    }
+
+    public int getPrecision() {
+        return comparator.getPrecision();
+    }
+
+    /**
+     * Rounds every value once, e.g. {@code [1.005, 2.5]} at precision 2 gives {@code [101, 250]}.
+     */
+    public long[] keys(double[] values) {
+        long[] keys = new long[values.length];
+        Arrays.parallelSetAll(keys, i -> comparator.toScaledLong(values[i]));
+        return keys;
+    }
+
+    /**
+     * @see #keys(double[])
+     */
+    public long[] keys(Number[] values) {
+        long[] keys = new long[values.length];
+        Arrays.parallelSetAll(keys, i -> comparator.toScaledLong(values[i]));
+        return keys;
+    }
+
+    /**
+     * Returns a copy of {@code values} ordered by rounded value.
+     */
+    public double[] sort(double[] values) {
+        int[] order = sortedOrder(keys(values));
+        double[] sorted = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = values[order[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns the elements of {@code values} (e.g. {@link BigDecimal} amounts) ordered by rounded value.
+     */
+    public <T extends Number> List<T> sort(Collection<? extends T> values) {
+        Number[] array = values.toArray(new Number[0]);
+        return select(array, sortedOrder(keys(array)));
+    }
+
+    /**
+     * Returns one value per distinct rounded value, in rounded order. Of several values rounding
+     * to the same amount, the first one in {@code values} is kept.
+     */
+    public double[] distinct(double[] values) {
+        long[] keys = keys(values);
+        int[] order = sortedOrder(keys);
+        double[] distinct = new double[order.length];
+        int count = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (i == 0 || keys[order[i]] != keys[order[i - 1]]) {
+                distinct[count++] = values[order[i]];
+            }
+        }
+        return Arrays.copyOf(distinct, count);
+    }
+
+    /**
+     * @see #distinct(double[])
+     */
+    public <T extends Number> List<T> distinct(Collection<? extends T> values) {
+        Number[] array = values.toArray(new Number[0]);
+        long[] keys = keys(array);
+        int[] order = sortedOrder(keys);
+        int count = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (i == 0 || keys[order[i]] != keys[order[i - 1]]) {
+                order[count++] = order[i];
+            }
+        }
+        return select(array, Arrays.copyOf(order, count));
+    }
+
+    /**
+     * Groups the values by rounded value. The map iterates in rounded order and each group keeps
+     * the original order of its values.
+     */
+    public Map<BigDecimal, double[]> group(double[] values) {
+        long[] keys = keys(values);
+        int[] order = sortedOrder(keys);
+        Map<BigDecimal, double[]> groups = new LinkedHashMap<>();
+        for (int start = 0, end; start < order.length; start = end) {
+            end = groupEnd(keys, order, start);
+            double[] group = new double[end - start];
+            for (int i = start; i < end; i++) {
+                group[i - start] = values[order[i]];
+            }
+            groups.put(BigDecimal.valueOf(keys[order[start]], getPrecision()), group);
+        }
+        return groups;
+    }
+
+    /**
+     * @see #group(double[])
+     */
+    public <T extends Number> Map<BigDecimal, List<T>> group(Collection<? extends T> values) {
+        Number[] array = values.toArray(new Number[0]);
+        long[] keys = keys(array);
+        int[] order = sortedOrder(keys);
+        Map<BigDecimal, List<T>> groups = new LinkedHashMap<>();
+        for (int start = 0, end; start < order.length; start = end) {
+            end = groupEnd(keys, order, start);
+            groups.put(BigDecimal.valueOf(keys[order[start]], getPrecision()),
+                    select(array, Arrays.copyOfRange(order, start, end)));
+        }
+        return groups;
+    }
+
+    /**
+     * Returns the indexes of {@code keys} in ascending key order; equal keys keep their index order.
+     * When the key range and the index fit in 63 bits together, both are packed into one long so a
+     * primitive parallel sort does all the work; otherwise the indexes are sorted with a comparator.
+     */
+    static int[] sortedOrder(long[] keys) {
+        int n = keys.length;
+        int[] order = new int[n];
+        if (n == 0) {
+            return order;
+        }
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (long key : keys) {
+            min = Math.min(min, key);
+            max = Math.max(max, key);
+        }
+        long range = max - min; // Overflows (goes negative) only for ranges wider than Long.MAX_VALUE
+        int indexBits = 32 - Integer.numberOfLeadingZeros(Math.max(n - 1, 1));
+        int rangeBits = 64 - Long.numberOfLeadingZeros(range);
+        if (range >= 0 && rangeBits + indexBits <= 63) {
+            long indexMask = (1L << indexBits) - 1;
+            long[] packed = new long[n];
+            long base = min;
+            Arrays.parallelSetAll(packed, i -> ((keys[i] - base) << indexBits) | i);
+            Arrays.parallelSort(packed);
+            for (int i = 0; i < n; i++) {
+                order[i] = (int) (packed[i] & indexMask);
+            }
+            return order;
+        }
+        Integer[] boxed = new Integer[n];
+        Arrays.setAll(boxed, i -> i);
+        // parallelSort on objects is a stable merge sort
+        Arrays.parallelSort(boxed, Comparator.comparingLong(i -> keys[i]));
+        for (int i = 0; i < n; i++) {
+            order[i] = boxed[i];
+        }
+        return order;
+    }
+
+    private static int groupEnd(long[] keys, int[] order, int start) {
+        int end = start + 1;
+        while (end < order.length && keys[order[end]] == keys[order[start]]) {
+            end++;
+        }
+        return end;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Number> List<T> select(Number[] values, int[] indexes) {
+        List<T> selected = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            selected.add((T) values[index]);
+        }
+        return selected;
+    }
+}
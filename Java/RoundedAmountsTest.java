@@ -0,0 +1,65 @@
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RoundedAmountsTest {
+
+    private final RoundedAmounts amounts = new RoundedAmounts(2);
+
+    @Test
+    void emptyInputs_giveEmptyResults() {
+        assertArrayEquals(new double[0], amounts.sort(new double[0]));
+        assertArrayEquals(new double[0], amounts.distinct(new double[0]));
+        assertTrue(amounts.group(new double[0]).isEmpty());
+        assertEquals(List.of(), amounts.sort(Collections.<BigDecimal>emptyList()));
+        assertArrayEquals(new int[0], RoundedAmounts.sortedOrder(new long[0]));
+    }
+
+    @Test
+    void valuesRoundingToTheSameAmount_keepTheirOriginalOrder() {
+        // 1.005 is stored below the tie but rounds up like its decimal; 1.0049 rounds down
+        double[] values = {1.01, 1.0049, 1.005, 1.0, 1.006};
+        assertArrayEquals(new double[] {1.0049, 1.0, 1.01, 1.005, 1.006}, amounts.sort(values));
+        assertArrayEquals(new double[] {1.0049, 1.01}, amounts.distinct(values));
+
+        Map<BigDecimal, double[]> groups = amounts.group(values);
+        assertEquals(List.of(new BigDecimal("1.00"), new BigDecimal("1.01")), List.copyOf(groups.keySet()));
+        assertArrayEquals(new double[] {1.01, 1.005, 1.006}, groups.get(new BigDecimal("1.01")));
+    }
+
+    @Test
+    void collections_keepTheirElements() {
+        List<BigDecimal> values = List.of(new BigDecimal("2.50"), new BigDecimal("-0.005"), new BigDecimal("2.5"),
+                new BigDecimal("-0.004"));
+        List<BigDecimal> sorted = amounts.sort(values);
+        assertEquals(List.of(values.get(1), values.get(3), values.get(0), values.get(2)), sorted);
+        assertEquals(values.get(0).scale(), sorted.get(2).scale(), "The original element, not a rounded copy");
+        assertEquals(List.of(values.get(1), values.get(3), values.get(0)), amounts.distinct(values));
+        assertEquals(List.of(values.get(0), values.get(2)), amounts.group(values).get(new BigDecimal("2.50")));
+    }
+
+    @Test
+    void sortedOrder_isStableAcrossTheWholeLongRange() {
+        // A range wider than Long.MAX_VALUE cannot be packed and takes the comparator sort
+        long[] wide = {Long.MAX_VALUE, 0, Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        assertArrayEquals(new int[] {2, 4, 1, 0, 3}, RoundedAmounts.sortedOrder(wide));
+        // Largest range that still packs next to two index bits
+        long[] packed = {(1L << 61) - 1, 0, (1L << 61) - 1, 0};
+        assertArrayEquals(new int[] {1, 3, 0, 2}, RoundedAmounts.sortedOrder(packed));
+        assertArrayEquals(new int[] {0}, RoundedAmounts.sortedOrder(new long[] {Long.MIN_VALUE}));
+    }
+
+    @Test
+    void keys_throwWhenTheScaledAmountDoesNotFitInALong() {
+        assertThrows(ArithmeticException.class, () -> amounts.keys(new double[] {1.0, 1e300}));
+        assertThrows(ArithmeticException.class, () -> amounts.keys(new Number[] {Long.MAX_VALUE}));
+    }
+}
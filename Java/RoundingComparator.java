@@ -0,0 +1,218 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Comparator;
+
+/**
+ * Comparator that compares two {@link Number} objects after rounding them to a specified precision.
+ * This comparator is useful for comparing numeric values such as {@link BigDecimal} and {@link Double}
+ * with a specified number of decimal places.
+ * <p>
+ * Values are rounded to a {@code long} holding the amount scaled by 10^precision whenever that can be
+ * done exactly, which needs no allocation for doubles and boxed primitives. Values for which this is
+ * not possible (huge magnitudes, doubles too close to a rounding tie to decide in floating point)
+ * take the {@link BigDecimal} path.
+ * Both paths give the same results.
+ */
+public class RoundingComparator implements Comparator<Number> {
+
+    /**
+     * Returned by {@link #roundFast(double)} and {@link #roundFast(Number)} when the value
+     * cannot be rounded exactly without {@link BigDecimal}.
+     */
+    static final long NO_FAST_KEY = Long.MIN_VALUE;
+
+    private static final int MAX_FAST_PRECISION = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_FAST_PRECISION + 1];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    // Scaled doubles at or above 2^52 have no fractional bits left to round
+    private static final double MAX_FAST_SCALED_DOUBLE = 0x1p52;
+    // Below 2^48 one ulp of the scaled value is far smaller than a tenth of the last kept digit,
+    // so only one (p+1)-digit decimal can be the shortest representation of a double near a tie
+    private static final double MAX_TIE_SCALED_DOUBLE = 0x1p48;
+    // Above this, 2 * 10^precision is not exactly representable as a double
+    private static final int MAX_TIE_PRECISION = 15;
+
+    private final int precision;
+    private final boolean fastPathEnabled;
+    private final long scale;          // 10^precision, if fastPathEnabled
+    private final double scaleDouble;
+
+    /**
+     * Constructs a {@code RoundingComparator} with the specified precision.
+     *
+     * @param precision the number of decimal places to which the numbers should be rounded
+     */
+    public RoundingComparator(int precision) {
+        this.precision = precision;
+        this.fastPathEnabled = precision >= 0 && precision <= MAX_FAST_PRECISION;
+        this.scale = fastPathEnabled ? POWERS_OF_TEN[precision] : 0;
+        this.scaleDouble = scale;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Compares two {@link Number} objects after rounding them to the specified precision
+     * using {@link RoundingMode#HALF_UP}. {@link BigDecimal}, {@link BigInteger} and integral
+     * inputs keep their full precision; other numbers are taken as {@link BigDecimal#valueOf(double)}
+     * of their {@code doubleValue()}.
+     *
+     * @param n1 the first {@code Number} to be compared
+     * @param n2 the second {@code Number} to be compared
+     * @return a negative integer, zero, or a positive integer as the first argument is less than,
+     * equal to, or greater than the second
+     */
+    @Override
+    public int compare(Number n1, Number n2) {
+        long k1 = roundFast(n1);
+        if (k1 != NO_FAST_KEY) {
+            long k2 = roundFast(n2);
+            if (k2 != NO_FAST_KEY) {
+                return Long.compare(k1, k2);
+            }
+        }
+        return round(n1).compareTo(round(n2));
+    }
+
+    /**
+     * Primitive variant of {@link #compare(Number, Number)}; allocation-free unless one of the
+     * values needs the exact slow path.
+     */
+    public int compare(double d1, double d2) {
+        long k1 = roundFast(d1);
+        if (k1 != NO_FAST_KEY) {
+            long k2 = roundFast(d2);
+            if (k2 != NO_FAST_KEY) {
+                return Long.compare(k1, k2);
+            }
+        }
+        return round(d1).compareTo(round(d2));
+    }
+
+    /**
+     * Rounds the value and returns it scaled by 10^precision, e.g. 12.345 at precision 2 gives 1235.
+     * Values that compare equal under this comparator give equal keys.
+     *
+     * @throws ArithmeticException if the rounded value does not fit in a {@code long}
+     */
+    public long toScaledLong(double value) {
+        long key = roundFast(value);
+        return key != NO_FAST_KEY ? key : round(value).unscaledValue().longValueExact();
+    }
+
+    /**
+     * @see #toScaledLong(double)
+     */
+    public long toScaledLong(Number value) {
+        long key = roundFast(value);
+        return key != NO_FAST_KEY ? key : round(value).unscaledValue().longValueExact();
+    }
+
+    /**
+     * The exact rounding used by the slow path.
+     */
+    public BigDecimal round(Number value) {
+        return toBigDecimal(value).setScale(precision, RoundingMode.HALF_UP);
+    }
+
+    public BigDecimal round(double value) {
+        return BigDecimal.valueOf(value).setScale(precision, RoundingMode.HALF_UP);
+    }
+
+    // --- Fast path ---
+
+    long roundFast(Number value) {
+        if (!fastPathEnabled) {
+            return NO_FAST_KEY;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return roundFast(value.doubleValue());
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return scaleUp(value.longValue(), precision);
+        }
+        if (value instanceof BigDecimal) {
+            BigDecimal bd = (BigDecimal) value;
+            if (bd.precision() > MAX_FAST_PRECISION) {
+                return NO_FAST_KEY;
+            }
+            long unscaled = bd.unscaledValue().longValue();
+            int digitsToDrop = bd.scale() - precision;
+            if (digitsToDrop <= 0) {
+                return digitsToDrop < -MAX_FAST_PRECISION ? NO_FAST_KEY : scaleUp(unscaled, -digitsToDrop);
+            }
+            if (digitsToDrop > MAX_FAST_PRECISION) {
+                return 0; // |unscaled| < 10^18 <= divisor / 2, so it rounds to zero
+            }
+            long divisor = POWERS_OF_TEN[digitsToDrop];
+            long quotient = unscaled / divisor;
+            long remainder = Math.abs(unscaled % divisor);
+            if (remainder >= divisor - remainder) { // remainder * 2 >= divisor, without overflow
+                quotient += Long.signum(unscaled);
+            }
+            return quotient;
+        }
+        return value instanceof BigInteger ? NO_FAST_KEY : roundFast(value.doubleValue());
+    }
+
+    /**
+     * Rounds {@code BigDecimal.valueOf(value)} HALF_UP in floating point. The product
+     * {@code |value| * 10^precision} carries a small error, so it is only trusted when its fraction
+     * is clearly away from .5. Near .5 the value is compared with the double nearest to the decimal
+     * tie itself: if they are equal, the shortest decimal representation of the value is the tie and
+     * rounds up; otherwise that representation lies on the same side of the tie as the value.
+     */
+    long roundFast(double value) {
+        if (!fastPathEnabled) {
+            return NO_FAST_KEY;
+        }
+        double scaled = Math.abs(value) * scaleDouble;
+        if (!(scaled < MAX_FAST_SCALED_DOUBLE)) { // Also catches NaN and infinities
+            return NO_FAST_KEY;
+        }
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        long rounded;
+        if (Math.abs(fraction - 0.5) > 4 * Math.ulp(scaled)) {
+            rounded = (long) floor + (fraction > 0.5 ? 1 : 0);
+        } else if (scaled < MAX_TIE_SCALED_DOUBLE && precision <= MAX_TIE_PRECISION) {
+            // Both operands are exact, so the quotient is the double nearest to the decimal tie
+            double tie = (2 * floor + 1) / (2 * scaleDouble);
+            rounded = (long) floor + (Math.abs(value) >= tie ? 1 : 0);
+        } else {
+            return NO_FAST_KEY;
+        }
+        return value < 0 ? -rounded : rounded;
+    }
+
+    private static long scaleUp(long value, int digits) {
+        long scaled = value * POWERS_OF_TEN[digits];
+        // Overflow check without the exception Math.multiplyExact would throw
+        if (value != 0 && (scaled / POWERS_OF_TEN[digits] != value || scaled == NO_FAST_KEY)) {
+            return NO_FAST_KEY;
+        }
+        return scaled;
+    }
+
+    private static BigDecimal toBigDecimal(Number value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(value.longValue());
+        }
+        return BigDecimal.valueOf(value.doubleValue());
+    }
+}
@@ -0,0 +1,76 @@
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RoundingComparatorTest {
+
+    private final RoundingComparator cents = new RoundingComparator(2);
+
+    @Test
+    void doublesNextToADecimalTie_roundLikeTheirShortestDecimal() {
+        // 2.675 and 1.005 are stored just below the tie, 0.125 exactly on it
+        assertEquals(268, cents.toScaledLong(2.675));
+        assertEquals(101, cents.toScaledLong(1.005));
+        assertEquals(-13, cents.toScaledLong(-0.125));
+        assertEquals(268, cents.toScaledLong(Math.nextUp(2.675)));
+        assertEquals(267, cents.toScaledLong(Math.nextDown(2.675)));
+        assertEquals(1, new RoundingComparator(0).toScaledLong(0.5));
+        assertEquals(-1, new RoundingComparator(0).toScaledLong(-0.5));
+        assertEquals(0, cents.compare(2.675, 2.68));
+        assertEquals(0, cents.compare(-0.0, 0.0));
+    }
+
+    @Test
+    void tiesBeyondTheFastPath_takeTheBigDecimalPath() {
+        // At 16 digits 2 * 10^precision is no longer exact, so the tie is left to BigDecimal
+        RoundingComparator fine = new RoundingComparator(16);
+        assertEquals(RoundingComparator.NO_FAST_KEY, fine.roundFast(0.00000000000000005));
+        assertEquals(1, fine.toScaledLong(0.00000000000000005));
+        assertEquals(new BigDecimal("0.0000000000000001"), fine.round(0.00000000000000005));
+
+        RoundingComparator tooFine = new RoundingComparator(19);
+        assertEquals(RoundingComparator.NO_FAST_KEY, tooFine.roundFast(1.5));
+        assertEquals(new BigDecimal("1.5000000000000000000"), tooFine.round(1.5));
+        assertEquals(-1, tooFine.compare(1.5, 1.5000000000000002));
+    }
+
+    @Test
+    void integralValues_scaleUpOrFallBackOnOverflow() {
+        assertEquals(12_300, cents.toScaledLong(Integer.valueOf(123)));
+        assertEquals(RoundingComparator.NO_FAST_KEY, cents.roundFast(Long.valueOf(Long.MAX_VALUE)));
+        assertEquals(RoundingComparator.NO_FAST_KEY, cents.roundFast(Long.valueOf(Long.MIN_VALUE)));
+        // Long.MIN_VALUE is the NO_FAST_KEY marker itself, so even unscaled it takes the slow path
+        assertEquals(RoundingComparator.NO_FAST_KEY,
+                new RoundingComparator(0).roundFast(Long.valueOf(Long.MIN_VALUE)));
+        assertEquals(1, cents.compare(Long.valueOf(Long.MAX_VALUE), Long.valueOf(Long.MAX_VALUE - 1)));
+        assertEquals(-1, cents.compare(Long.valueOf(Long.MIN_VALUE), Long.valueOf(0)));
+        assertEquals(0, cents.compare(BigInteger.TEN, new BigDecimal("10.001")));
+        assertThrows(ArithmeticException.class, () -> cents.toScaledLong(Long.valueOf(Long.MAX_VALUE)));
+        assertThrows(ArithmeticException.class, () -> cents.toScaledLong(1e300));
+    }
+
+    @Test
+    void bigDecimals_roundHalfUpWithoutLosingDigits() {
+        assertEquals(-124, cents.toScaledLong(new BigDecimal("-1.235")));
+        assertEquals(-123, cents.toScaledLong(new BigDecimal("-1.2349999999999999")));
+        // More digits than fit the fast path
+        assertEquals(RoundingComparator.NO_FAST_KEY, cents.roundFast(new BigDecimal("0.1234999999999999999999")));
+        assertEquals(12, cents.toScaledLong(new BigDecimal("0.1234999999999999999999")));
+        // More than 18 digits dropped: rounds to zero
+        assertEquals(0, cents.roundFast(new BigDecimal("4E-25")));
+        // Scaled up by more than 18 digits
+        assertEquals(RoundingComparator.NO_FAST_KEY, cents.roundFast(new BigDecimal("1E+17")));
+        assertEquals(1, cents.compare(new BigDecimal("1E+17"), Long.valueOf(Long.MAX_VALUE / 100)));
+    }
+
+    @Test
+    void nonFiniteDoubles_areRejectedByBigDecimal() {
+        assertEquals(RoundingComparator.NO_FAST_KEY, cents.roundFast(Double.NaN));
+        assertEquals(RoundingComparator.NO_FAST_KEY, cents.roundFast(Double.POSITIVE_INFINITY));
+        assertThrows(NumberFormatException.class, () -> cents.compare(Double.NaN, 1.0));
+    }
+}
@@ -0,0 +1,38 @@
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Stand-in for the application's audit log entity, with the accessors used by AuditLogUtils.
+ * Equality is by auditRecordId, as for the JPA entity.
+ */
+public class AuditLog {
+
+    private final Long auditRecordId;
+    private final String action;
+    private final String details;
+    private final LocalDateTime timestamp;
+
+    public AuditLog(Long auditRecordId, String action, String details, LocalDateTime timestamp) {
+        this.auditRecordId = auditRecordId;
+        this.action = action;
+        this.details = details;
+        this.timestamp = timestamp;
+    }
+
+    public Long getAuditRecordId() { return auditRecordId; }
+    public String getAction() { return action; }
+    public String getDetails() { return details; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AuditLog)) return false;
+        return Objects.equals(auditRecordId, ((AuditLog) o).auditRecordId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(auditRecordId);
+    }
+}
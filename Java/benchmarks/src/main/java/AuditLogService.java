@@ -0,0 +1,10 @@
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Stand-in for the application's audit log service.
+ */
+public interface AuditLogService {
+
+    List<AuditLog> findEntriesAfter(LocalDateTime date);
+}
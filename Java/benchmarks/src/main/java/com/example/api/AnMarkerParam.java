@@ -0,0 +1,29 @@
+package com.example.api;
+
+import java.math.BigDecimal;
+
+/**
+ * Stand-in for the application's payment order parameter object, shaped like a typical order.
+ */
+public class AnMarkerParam {
+
+    private String debtorAccount;
+    private String creditorAccount;
+    private BigDecimal amount;
+    private String currency;
+    private String endToEndId;
+    private String remittanceInformation;
+
+    public String getDebtorAccount() { return debtorAccount; }
+    public void setDebtorAccount(String debtorAccount) { this.debtorAccount = debtorAccount; }
+    public String getCreditorAccount() { return creditorAccount; }
+    public void setCreditorAccount(String creditorAccount) { this.creditorAccount = creditorAccount; }
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+    public String getCurrency() { return currency; }
+    public void setCurrency(String currency) { this.currency = currency; }
+    public String getEndToEndId() { return endToEndId; }
+    public void setEndToEndId(String endToEndId) { this.endToEndId = endToEndId; }
+    public String getRemittanceInformation() { return remittanceInformation; }
+    public void setRemittanceInformation(String remittanceInformation) { this.remittanceInformation = remittanceInformation; }
+}
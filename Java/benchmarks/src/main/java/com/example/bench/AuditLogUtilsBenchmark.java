@@ -0,0 +1,85 @@
+package com.example.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AuditLogUtils diffing and ID extraction on audit windows of realistic size: an initial snapshot
+ * and a final snapshot containing the same entries plus a few new ones.
+ * AuditLogUtils and AuditLog live in the default package, so they are reached through method handles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditLogUtilsBenchmark {
+
+    @Param({"1000", "10000"})
+    public int windowSize;
+
+    @Param({"5"})
+    public int newEntries;
+
+    private Object auditLogUtils;
+    private MethodHandle getNewAuditLogs;
+    private MethodHandle extractAuditRecordIds;
+
+    private List<Object> initialLogs;
+    private List<Object> finalLogs;
+
+    @Setup
+    public void setup() throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Class<?> utilsType = Class.forName("AuditLogUtils");
+        Class<?> auditLogType = Class.forName("AuditLog");
+
+        auditLogUtils = utilsType.getConstructor().newInstance();
+        getNewAuditLogs = lookup.findVirtual(utilsType, "getNewAuditLogs",
+                MethodType.methodType(List.class, List.class, List.class));
+        extractAuditRecordIds = lookup.findVirtual(utilsType, "extractAuditRecordIds",
+                MethodType.methodType(Long[].class, List.class));
+        MethodHandle newAuditLog = lookup.findConstructor(auditLogType,
+                MethodType.methodType(void.class, Long.class, String.class, String.class, LocalDateTime.class));
+
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        initialLogs = new ArrayList<>(windowSize);
+        finalLogs = new ArrayList<>(windowSize + newEntries);
+        for (int i = 0; i < windowSize + newEntries; i++) {
+            Object entry = newAuditLog.invoke(Long.valueOf(1_000_000L + i), "Download Report",
+                    "Report downloaded successfully by user" + (i % 50), start.plusNanos(i * 1_000_000L));
+            if (i < windowSize) {
+                initialLogs.add(entry);
+            }
+            finalLogs.add(entry);
+        }
+    }
+
+    @Benchmark
+    public Object getNewAuditLogs() throws Throwable {
+        return getNewAuditLogs.invoke(auditLogUtils, initialLogs, finalLogs);
+    }
+
+    @Benchmark
+    public Object extractAuditRecordIds() throws Throwable {
+        return extractAuditRecordIds.invoke(auditLogUtils, finalLogs);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.bench;
+
+import com.example.api.SwiftJwtTokenComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building and signing the OAuth JWT assertion (RS256 over a header carrying the x5c chain).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtSigningBenchmark {
+
+    private SwiftJwtTokenComponent component;
+
+    @Setup
+    public void setup() throws Exception {
+        component = new SwiftJwtTokenComponent();
+        ReflectionTestUtils.setField(component, "p12File", TestKeystore.generate().toString());
+        ReflectionTestUtils.setField(component, "p12Password", TestKeystore.PASSWORD);
+        ReflectionTestUtils.setField(component, "consumerKey", "benchmark-consumer-key");
+        ReflectionTestUtils.setField(component, "scope", "swift.apitracker");
+        ReflectionTestUtils.setField(component, "baseUrl", "https://sandbox.swift.com");
+        ReflectionTestUtils.setField(component, "watchP12File", false);
+        component.initSecurityPrimitives();
+        component.awaitInitialized();
+    }
+
+    @Benchmark
+    public String buildSignedJwt() throws Exception {
+        return component.buildSignedJwt("https://sandbox.swift.com/oauth2/v1/token");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String buildSignedJwtContended() throws Exception {
+        return component.buildSignedJwt("https://sandbox.swift.com/oauth2/v1/token");
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One message-mix iteration of the JMeter injection scripts: MessageMix.Selector against the
+ * per-iteration logic of the former Groovy script (config maps rebuilt, every ratio parsed and keys
+ * concatenated on each run), ported to Java so that only the approach differs, not the language,
+ * and against replaying a pre-generated MessageScenario. Variables are a HashMap standing in for
+ * JMeterVariables.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageMixBenchmark {
+
+    private static final String BIC = "PABCDEFGH";
+
+    private final Map<String, String> vars = new HashMap<>();
+    private MethodHandle select; // Selector.select(String), bound to a selector
+    private MethodHandle replay; // Cursor.replayNext(Selector, String), bound to a cursor and the selector
+    private Path scenarioFile;
+
+    @Setup
+    public void setup() throws Exception {
+        vars.put("bic", BIC);
+        vars.put("FinVsIsoRatio", "50");
+        vars.put("blockingAlertRatio", "50");
+        vars.put("blockingAccountGenerationRatio", "30");
+        vars.put("messagePercentageISOpacs009", "50");
+        vars.put("messagePercentageISOpacs008", "45");
+        vars.put("messagePercentageISOpacs004", "5");
+        vars.put("messagePercentageFINmt103", "5");
+        vars.put("messagePercentageFINmt202", "45");
+        vars.put("messagePercentageFINmt202C", "50");
+        vars.put("pacs008_blocking", "blocking");
+        vars.put("pacs008_nonblocking", "nonblocking");
+
+        Class<?> mixType = Class.forName("MessageMix");
+        Object selector = mixType.getMethod("selectorFor", Object.class).invoke(null, vars);
+        Class<?> messageType = Class.forName("MessageMix$MessageType");
+        select = MethodHandles.publicLookup()
+                .findVirtual(selector.getClass(), "select", MethodType.methodType(messageType, String.class))
+                .bindTo(selector)
+                .asType(MethodType.methodType(Object.class, String.class));
+
+        Class<?> scenarioType = Class.forName("MessageScenario");
+        scenarioFile = Files.createTempFile("message-scenario", ".bin");
+        Object mix = mixType.getMethod("of", Object.class).invoke(null, vars);
+        scenarioType.getMethod("generate", Path.class, mixType, long.class, long.class)
+                .invoke(null, scenarioFile, mix, 42L, 1_000_000L);
+        Object scenario = scenarioType.getMethod("open", Path.class).invoke(null, scenarioFile);
+        Object cursor = scenarioType.getMethod("cursor", int.class, int.class).invoke(scenario, 0, 1);
+        replay = MethodHandles.publicLookup()
+                .findVirtual(cursor.getClass(), "replayNext",
+                        MethodType.methodType(messageType, selector.getClass(), String.class))
+                .bindTo(cursor)
+                .bindTo(selector)
+                .asType(MethodType.methodType(Object.class, String.class));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(scenarioFile);
+    }
+
+    @Benchmark
+    public Object select() throws Throwable {
+        return select.invokeExact(vars.get("bic"));
+    }
+
+    @Benchmark
+    public Object replay() throws Throwable {
+        return replay.invokeExact(vars.get("bic"));
+    }
+
+    @Benchmark
+    public Object perIterationMaps() {
+        return LegacyScript.run(vars);
+    }
+
+    // improved_jsr223_script.java as it was, minus the logging
+    private static final class LegacyScript {
+
+        static Object run(Map<String, String> vars) {
+            Map<String, List<Map<String, String>>> messageTypes = Map.of(
+                    "ISO", List.of(
+                            Map.of("type", "pacs.009.001.08", "file", "pacs009.xml",
+                                    "ratioVar", "messagePercentageISOpacs009"),
+                            Map.of("type", "pacs.008.001.08", "file", "pacs008.xml",
+                                    "ratioVar", "messagePercentageISOpacs008",
+                                    "orderingFiRatioVar", "orderingFiRolePercentageISOpacs008"),
+                            Map.of("type", "pacs.004.001.10", "file", "pacs004.xml",
+                                    "ratioVar", "messagePercentageISOpacs004")),
+                    "FIN", List.of(
+                            Map.of("type", "103", "file", "mt103.txt", "ratioVar", "messagePercentageFINmt103",
+                                    "orderingFiRatioVar", "orderingFiRolePercentageMt103"),
+                            Map.of("type", "202", "file", "mt202.txt", "ratioVar", "messagePercentageFINmt202"),
+                            Map.of("type", "202.COV", "file", "mt202C.txt",
+                                    "ratioVar", "messagePercentageFINmt202C")));
+            Map<String, Map<String, String>> blockingConfig = Map.of(
+                    "ISO", Map.of("currency", "USD", "amount", "200.00", "creditor", "91990100", "debtor", "1234567111"),
+                    "FIN", Map.of("currency", "USD", "amount", "201,00", "creditor", "91990100", "debtor", "1234567111"));
+            Map<String, Map<String, String>> nonBlockingConfig = Map.of(
+                    "ISO", Map.of("currency", "INR", "amount", "170.00", "creditor", "99990100", "debtor", "1234567111"),
+                    "FIN", Map.of("currency", "INR", "amount", "169,00", "creditor", "99990100", "debtor", "1234567111"));
+            Map<String, Map<String, String>> noAlertConfig = Map.of(
+                    "ISO", Map.of("currency", "PLN", "amount", "1.00", "creditor", "99990100", "debtor", "1234567121"),
+                    "FIN", Map.of("currency", "PLN", "amount", "2,00", "creditor", "99990100", "debtor", "1234567121"));
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int finIso = random.nextInt(100);
+            int messageRoll = random.nextInt(100);
+            int orderingFiRoll = random.nextInt(100);
+            int blockingRoll = random.nextInt(100);
+            int accountRoll = random.nextInt(100);
+
+            String bic = vars.get("bic");
+            String notOrderingFiBic = "O" + bic.substring(1);
+            vars.put("bic_deciding_my_role", notOrderingFiBic);
+            vars.put("no_alert_bic_deciding_my_role", notOrderingFiBic);
+            vars.put("randomNumberFinOrIso", Integer.toString(finIso));
+
+            boolean iso = finIso < intVar(vars, "FinVsIsoRatio", 50);
+            boolean blocking = blockingRoll < intVar(vars, "blockingAlertRatio", 50);
+            String group = iso ? "ISO" : "FIN";
+            setMessageVars(vars, iso ? "noalert_" : "fin_noalert_", noAlertConfig.get(group), null, null);
+
+            Map<String, String> selected = null;
+            int cumulative = 0;
+            for (Map<String, String> message : messageTypes.get(group)) {
+                cumulative += intVar(vars, message.get("ratioVar"), 0);
+                if (messageRoll < cumulative) {
+                    selected = message;
+                    break;
+                }
+            }
+            if (selected == null) {
+                return null;
+            }
+            Map<String, String> config = new HashMap<>((blocking ? blockingConfig : nonBlockingConfig).get(group));
+            if (blocking && accountRoll < intVar(vars, "blockingAccountGenerationRatio", 30)) {
+                String account = (random.nextInt(2) == 0 ? bic : notOrderingFiBic) + "0000" + random.nextInt(1, 11);
+                config.put("creditor", account);
+                config.put("debtor", account);
+            }
+            vars.put("alerting_message", iso ? vars.get(blocking ? "pacs008_blocking" : "pacs008_nonblocking") : "none");
+            setMessageVars(vars, iso ? "" : "fin_", config, selected.get("file"), selected.get("type"));
+            String orderingFiRatioVar = selected.get("orderingFiRatioVar");
+            if (orderingFiRatioVar != null && orderingFiRoll < intVar(vars, orderingFiRatioVar, 30)) {
+                vars.put("bic_deciding_my_role", bic);
+            }
+            return selected;
+        }
+
+        private static void setMessageVars(Map<String, String> vars, String prefix, Map<String, String> config,
+                                           String messageFile, String requestType) {
+            vars.put(prefix + "currency", config.get("currency"));
+            vars.put(prefix + "amount", config.get("amount"));
+            vars.put(prefix + "account_creditor", config.get("creditor"));
+            vars.put(prefix + "account_debtor", config.get("debtor"));
+            if (messageFile != null) {
+                vars.put(prefix + "message_file", messageFile);
+            }
+            if (requestType != null) {
+                vars.put(prefix + "request_type", requestType);
+            }
+        }
+
+        private static int intVar(Map<String, String> vars, String key, int defaultValue) {
+            try {
+                String value = vars.get(key);
+                int parsed = value == null ? defaultValue : Integer.parseInt(value);
+                return parsed < 0 || parsed > 100 ? defaultValue : parsed;
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.bench;
+
+import com.example.api.AnMarkerParam;
+import com.example.api.JsonBodyPool;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of a payment order: the old writeValueAsString path against the pooled
+ * {@link JsonBodyPool} path used by SwiftApiGatewayService.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentOrderSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private JsonBodyPool bodyPool;
+    private AnMarkerParam order;
+
+    @Setup
+    public void setup() {
+        // Same configuration as SwiftApiGatewayService
+        objectMapper = new ObjectMapper();
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        bodyPool = new JsonBodyPool(objectMapper.writerFor(AnMarkerParam.class), 256, 64 * 1024);
+
+        order = new AnMarkerParam();
+        order.setDebtorAccount("DE89370400440532013000");
+        order.setCreditorAccount("BE68539007547034");
+        order.setAmount(new BigDecimal("1250.75"));
+        order.setCurrency("EUR");
+        order.setEndToEndId("E2E-20240101-000000001");
+    }
+
+    @Benchmark
+    public String writeValueAsString() throws Exception {
+        return objectMapper.writeValueAsString(order);
+    }
+
+    @Benchmark
+    public int pooledBody() throws Exception {
+        try (JsonBodyPool.Body body = bodyPool.write(order)) {
+            return body.length();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RoundingComparator on realistic payment amounts, for Double and BigDecimal inputs.
+ * RoundingComparator lives in the default package, so it is loaded by name and used through Comparator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundingComparatorBenchmark {
+
+    @Param({"DOUBLE", "BIG_DECIMAL"})
+    public String inputType;
+
+    @Param({"2"})
+    public int precision;
+
+    @Param({"10000"})
+    public int size;
+
+    private Comparator<Number> comparator;
+    private MethodHandle comparePrimitive; // compare(double, double), bound to the comparator
+    private MethodHandle sortRoundedOnce;  // RoundedAmounts.sort(Collection), bound to an instance
+    private Number[] values;
+    private double[] doubles;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws ReflectiveOperationException {
+        Class<?> comparatorType = Class.forName("RoundingComparator");
+        comparator = (Comparator<Number>) comparatorType.getConstructor(int.class).newInstance(precision);
+        comparePrimitive = MethodHandles.publicLookup()
+                .findVirtual(comparatorType, "compare", MethodType.methodType(int.class, double.class, double.class))
+                .bindTo(comparator);
+        Class<?> roundedAmountsType = Class.forName("RoundedAmounts");
+        sortRoundedOnce = MethodHandles.publicLookup()
+                .findVirtual(roundedAmountsType, "sort", MethodType.methodType(List.class, Collection.class))
+                .bindTo(roundedAmountsType.getConstructor(int.class).newInstance(precision));
+
+        SplittableRandom random = new SplittableRandom(42);
+        values = new Number[size];
+        for (int i = 0; i < size; i++) {
+            // Amounts between 0 and 1,000,000 with three decimals, so rounding actually matters
+            long thousandths = random.nextLong(1_000_000_000L);
+            values[i] = "DOUBLE".equals(inputType)
+                    ? (Number) (thousandths / 1000.0)
+                    : BigDecimal.valueOf(thousandths, 3);
+        }
+        doubles = new double[size];
+        for (int i = 0; i < size; i++) {
+            doubles[i] = values[i].doubleValue();
+        }
+    }
+
+    /**
+     * One pass of adjacent comparisons over the input array.
+     */
+    @Benchmark
+    public void compareAdjacent(Blackhole bh) {
+        Number[] v = values;
+        for (int i = 1; i < v.length; i++) {
+            bh.consume(comparator.compare(v[i - 1], v[i]));
+        }
+    }
+
+    /**
+     * Same comparisons through the primitive {@code compare(double, double)} entry point.
+     */
+    @Benchmark
+    public void compareAdjacentPrimitive(Blackhole bh) throws Throwable {
+        double[] v = doubles;
+        for (int i = 1; i < v.length; i++) {
+            bh.consume((int) comparePrimitive.invokeExact(v[i - 1], v[i]));
+        }
+    }
+
+    @Benchmark
+    public List<Number> sort() {
+        List<Number> copy = new ArrayList<>(List.of(values));
+        copy.sort(comparator);
+        return copy;
+    }
+
+    /**
+     * Same ordering as {@link #sort()}, rounding each value once instead of on every comparison.
+     */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<Number> sortRoundedOnce() throws Throwable {
+        return (List<Number>) sortRoundedOnce.invokeExact((Collection<?>) List.of(values));
+    }
+}
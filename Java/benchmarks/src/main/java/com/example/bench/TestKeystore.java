@@ -0,0 +1,40 @@
+package com.example.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Generates a throwaway PKCS12 keystore with a self-signed RSA key, using the JDK's keytool.
+ */
+final class TestKeystore {
+
+    static final String PASSWORD = "changeit";
+
+    private TestKeystore() {
+    }
+
+    /**
+     * Creates a new keystore in a temporary directory and returns its path.
+     */
+    static Path generate() throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("bench-keystore");
+        Path keystore = dir.resolve("client.p12");
+        String keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+        Process process = new ProcessBuilder(keytool,
+                "-genkeypair", "-alias", "client", "-keyalg", "RSA", "-keysize", "2048",
+                "-dname", "CN=Benchmark Client, O=Example, C=BE", "-validity", "30",
+                "-storetype", "PKCS12", "-keystore", keystore.toString(),
+                "-storepass", PASSWORD, "-keypass", PASSWORD)
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes());
+        if (process.waitFor() != 0) {
+            throw new IOException("keytool failed: " + output);
+        }
+        keystore.toFile().deleteOnExit();
+        dir.toFile().deleteOnExit();
+        return keystore;
+    }
+}
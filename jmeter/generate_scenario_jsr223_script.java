@@ -0,0 +1,24 @@
+// setUp Thread Group (1 thread): pre-generates the message scenario replayed by replay_scenario_jsr223_script.java.
+// The ratios are the ratio variables of improved_jsr223_script.java, read from JMeter properties (e.g.
+// -GFinVsIsoRatio=50 for all engines) so that every engine generates from the same values; a missing one fails
+// the setUp rather than falling back to its default. messageMixVariant (STANDARD or SCRIPT2) is optional.
+// The same seed and ratios always give the same file, so every remote engine can run this itself instead of
+// having the file shipped to it.
+// Properties: scenarioFile (default message-scenario.bin), scenarioSeed (default 1), scenarioMessages (default 1000000)
+
+import java.nio.file.Paths
+
+def file = Paths.get(props.getProperty('scenarioFile', 'message-scenario.bin'))
+long seed = props.getProperty('scenarioSeed', '1') as long
+long messages = props.getProperty('scenarioMessages', '1000000') as long
+
+def mix = MessageMix.of(props)
+def missing = mix.ratioVariables.keySet().findAll { it != MessageMix.VARIANT_VAR && props.getProperty(it) == null }
+if (missing) {
+    throw new IllegalStateException("Message scenario ratio properties not set: ${missing}")
+}
+
+MessageScenario.generate(file, mix, seed, messages)
+def scenario = MessageScenario.open(file)
+props.put('messageScenario', scenario)
+log.info("Message scenario ${file}: ${scenario.size()} messages, seed ${seed}, ratios ${scenario.ratioVariables}")
@@ -0,0 +1,21 @@
+// Replays the scenario of generate_scenario_jsr223_script.java instead of drawing a random message mix:
+// fills the same variables as improved_jsr223_script.java, from the pre-generated file.
+// Each thread reads its own interleaved slot of the memory-mapped file, so threads never coordinate and
+// every run with the same seed, thread count and engine count sends the same messages per thread.
+// Properties: engineIndex (default 0) and engineCount (default 1). engineIndex differs per engine, so set it on
+// each jmeter-server with -JengineIndex=0, -JengineIndex=1, ... (-G would give every engine the same value);
+// engineCount is the same everywhere, e.g. -GengineCount=3 on the client.
+// Replay from one thread group per scenario, otherwise their slots overlap.
+
+def cursor = vars.getObject('messageScenarioCursor')
+if (cursor == null) {
+    def scenario = props.get('messageScenario')
+    cursor = scenario.cursor(props.getProperty('engineIndex', '0') as int, props.getProperty('engineCount', '1') as int,
+            ctx.getThreadNum(), ctx.getThreadGroup().getNumThreads())
+    vars.putObject('messageScenarioCursor', cursor)
+    vars.putObject('messageScenarioSelector', scenario.mix.newSelector(vars))
+}
+
+if (cursor.replayNext(vars.getObject('messageScenarioSelector'), vars.get('bic')) == null) {
+    log.error("No message type in the scenario at this point, check the messagePercentage ratio configuration")
+}